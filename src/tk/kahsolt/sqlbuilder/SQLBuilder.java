@@ -10,33 +10,105 @@
 
 package tk.kahsolt.sqlbuilder;
 
+import tk.kahsolt.sqlbuilder.jdbc.AsyncExecutor;
+import tk.kahsolt.sqlbuilder.jdbc.ConnectionPool;
 import tk.kahsolt.sqlbuilder.sql.*;
 
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 public class SQLBuilder {
 
     private Dialect dialect = Dialect.SQLITE;
+    private TemplateCache templateCache;    // opt-in, see enableTemplateCache()
+    private boolean parameterized = false;  // opt-in, see enableParameterized()
+    private RenderListener renderListener;  // opt-in, see enableMetrics()
+    private Map<String, Table> inlineTimestamps;    // opt-in, see enableInlineTimestamps(); table => its latest CREATE
+    private final Map<DataSource, AsyncExecutor> executors = new ConcurrentHashMap<>();     // see async()
 
     public SQLBuilder() { }
     public SQLBuilder(Dialect dialect) { this.dialect = dialect; }
 
+    // Cache: SQL of parameterized queries by shape, so a shape seen before skips render(); literal queries always render
+    public SQLBuilder enableTemplateCache() { return enableTemplateCache(TemplateCache.DEFAULT_CAPACITY); }
+    public SQLBuilder enableTemplateCache(int capacity) { return enableTemplateCache(new TemplateCache(capacity)); }
+    public SQLBuilder enableTemplateCache(TemplateCache templateCache) { this.templateCache = templateCache; return withCache(); }
+    public SQLBuilder disableTemplateCache() { this.templateCache = null; return withCache(); }
+    public TemplateCache getTemplateCache() { return templateCache; }
+
+    // Metrics: render time per Keyword, statement length, cache hit rate; off costs one null check per end()
+    public SQLBuilder enableMetrics() { return enableMetrics(new Metrics()); }
+    public SQLBuilder enableMetrics(RenderListener renderListener) { this.renderListener = renderListener; return withCache(); }
+    public SQLBuilder disableMetrics() { this.renderListener = null; return this; }
+    public RenderListener getRenderListener() { return renderListener; }     // hand it to the jdbc helpers for execution times
+    public Metrics getMetrics() { return renderListener instanceof Metrics ? (Metrics) renderListener : null; }
+    private SQLBuilder withCache() {
+        if(renderListener instanceof Metrics) ((Metrics) renderListener).templateCache(templateCache);
+        return this;
+    }
+
+    // Parameters
+    public SQLBuilder enableParameterized() { this.parameterized = true; return this; }    // values become '?', see Query.prepare()
+    public SQLBuilder disableParameterized() { this.parameterized = false; return this; }
+    public boolean isParameterized() { return parameterized; }
+
+    // Timestamps (SQLite): updateSetCurrent() columns of tables created by this builder are set by its UPDATEs, no trigger
+    public SQLBuilder enableInlineTimestamps() { if(inlineTimestamps==null) inlineTimestamps = new ConcurrentHashMap<>(); return this; }
+    public SQLBuilder disableInlineTimestamps() { this.inlineTimestamps = null; return this; }
+    public boolean isInlineTimestamps() { return inlineTimestamps!=null; }
+
+    // Connections of this builder's dialect, e.g. pool("jdbc:sqlite:app.db").pragma("journal_mode", "WAL")
+    public ConnectionPool pool(String url) { return new ConnectionPool(dialect, url); }
+    public ConnectionPool pool(DataSource dataSource) { return new ConnectionPool(dialect, dataSource); }
+
+    // Execution: one executor, so one concurrency gate, per data source; the first call sets maxConcurrency
+    public AsyncExecutor async(DataSource dataSource) { return async(dataSource, AsyncExecutor.DEFAULT_CONCURRENCY); }
+    public AsyncExecutor async(DataSource dataSource, int maxConcurrency) {
+        return executors.compute(dataSource, (ds, executor) ->
+                executor!=null && !executor.isClosed() ? executor : new AsyncExecutor(ds, maxConcurrency).metrics(renderListener));
+    }
+
     // DDL
     public Table createTable(String table) { return createTable(table, false); }
-    public Table createTable(String table, boolean overwrite) { return new Table(table).dialect(dialect).overwrite(overwrite); }
-    public Table alterTable(String table) { return new Table(table, Keyword.ALTER); }
-    public Table dropTable(String table) { return new Table(table, Keyword.DROP); }
-    public Table truncateTable(String table) { return new Table(table, Keyword.TRUNCATE).dialect(dialect); }
+    public Table createTable(String table, boolean overwrite) { return configure(new Table(table)).overwrite(overwrite); }
+    public Table alterTable(String table) { return new Table(table, Keyword.ALTER).renderListener(renderListener); }   // SQLite: added timestamps get triggers
+    public Table dropTable(String table) { return new Table(table, Keyword.DROP).renderListener(renderListener); }
+    public Table truncateTable(String table) { return configure(new Table(table, Keyword.TRUNCATE)); }
+    public Table truncateTable(Table definition) { return definition.copy(Keyword.TRUNCATE); }     // can use Table.Truncate.RECREATE
+    public Table.Index createIndex(String table, String... columns) { return configure(new Table(table, Keyword.INDEX)).index(columns); }
+    public Table dropIndex(String table, String index) { return configure(new Table(table, Keyword.DROP)).index(new Table.Index(index)); }
+    public Schema schema(Table... tables) {     // createTable() definitions, put in foreign key order
+        Schema schema = new Schema(dialect);
+        for (Table table : tables) schema.table(table);
+        return schema;
+    }
 
     // DML
-    public Query insert(String table) { return new Query(table).setKeyword(Keyword.INSERT); }
-    public Query replace(String table) { return new Query(table).setKeyword(Keyword.REPLACE); }
-    public Query update(String table) { return new Query(table).setKeyword(Keyword.UPDATE); }
-    public Query delete(String table) { return new Query(table).setKeyword(Keyword.DELETE); }
+    public Query insert(String table) { return configure(new Query(table).setKeyword(Keyword.INSERT)).setTimestamps(timestamps(table)); }
+    public Query replace(String table) { return configure(new Query(table).setKeyword(Keyword.REPLACE)); }
+    public Query update(String table) { return configure(new Query(table).setKeyword(Keyword.UPDATE)).setTimestamps(timestamps(table)); }
+    public Query delete(String table) { return configure(new Query(table).setKeyword(Keyword.DELETE)); }
 
     // DQL
     public Query select(String... columns) { return select(false, columns); }
-    public Query select(boolean distinct, String... columns) { return new Query().setColumns(columns).setDistinct(distinct); }
+    public Query select(boolean distinct, String... columns) { return configure(new Query().setColumns(columns).setDistinct(distinct)); }
 
     // DCL
     public Transaction begin() { return new Transaction(); }
 
+    private Query configure(Query query) {
+        return query.setDialect(dialect).setTemplateCache(templateCache).setParameterized(parameterized).setRenderListener(renderListener);
+    }
+    private Table configure(Table table) { return register(table.dialect(dialect).renderListener(renderListener)); }
+    private Table register(Table table) {
+        if(inlineTimestamps==null || dialect!=Dialect.SQLITE || table.getKeyword()!=Keyword.CREATE) return table;
+        inlineTimestamps.put(table.getTable().toLowerCase(), table.inlineTimestamps(true));     // a redefinition replaces it
+        return table;
+    }
+    private String[] timestamps(String table) {
+        Table definition = inlineTimestamps==null ? null : inlineTimestamps.get(table.toLowerCase());
+        return definition==null ? null : definition.getUpdateSetCurrentColumns().toArray(new String[0]);
+    }
+
 }
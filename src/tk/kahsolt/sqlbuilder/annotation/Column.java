@@ -0,0 +1,24 @@
+package tk.kahsolt.sqlbuilder.annotation;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// the Table.Column setters; defaultValue is a number or a string, "" for none
+@Retention(RetentionPolicy.SOURCE)
+@Target({})
+public @interface Column {
+    String value();
+    String type() default "";
+    boolean primaryKey() default false;
+    boolean autoIncrement() default false;
+    boolean notNull() default false;
+    boolean unique() default false;
+    String defaultValue() default "";
+    String referencesTo() default "";
+    String referencedColumn() default "id";
+    boolean updateCascade() default false;
+    boolean deleteCascade() default false;
+    boolean initSetCurrent() default false;
+    boolean updateSetCurrent() default false;
+}
@@ -0,0 +1,17 @@
+package tk.kahsolt.sqlbuilder.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// the Table.end() of the definition, on a method without parameters
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.METHOD)
+public @interface CreateTable {
+    String value();
+    Column[] columns();
+    Index[] indexes() default {};
+    boolean indexForeignKeys() default false;
+    boolean overwrite() default false;
+}
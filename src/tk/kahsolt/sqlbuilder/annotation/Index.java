@@ -0,0 +1,15 @@
+package tk.kahsolt.sqlbuilder.annotation;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// the Table.Index setters; columns take a trailing " DESC"
+@Retention(RetentionPolicy.SOURCE)
+@Target({})
+public @interface Index {
+    String[] value();
+    String name() default "";
+    boolean unique() default false;
+    String where() default "";
+}
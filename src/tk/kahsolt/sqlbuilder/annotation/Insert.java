@@ -0,0 +1,18 @@
+package tk.kahsolt.sqlbuilder.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// VALUES(?, ...) for the columns; onConflict() makes it an upsert updating doUpdate(), or every column when empty
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.METHOD)
+public @interface Insert {
+    String into();
+    String[] columns();
+    boolean replace() default false;
+    String[] onConflict() default {};
+    String[] doUpdate() default {};
+    boolean doNothing() default false;
+}
@@ -0,0 +1,21 @@
+package tk.kahsolt.sqlbuilder.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// where: "id", "age >", "name LIKE", "OR level BETWEEN", "deleted IS NULL"; one '?' per operand, bound from the
+// method parameters in order. orderBy: "id", "create_time DESC".
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.METHOD)
+public @interface Select {
+    String[] value() default {"*"};
+    String[] from();
+    boolean distinct() default false;
+    String[] where() default {};
+    String[] groupBy() default {};
+    String[] orderBy() default {};
+    long limit() default -1;
+    long offset() default -1;
+}
@@ -0,0 +1,351 @@
+package tk.kahsolt.sqlbuilder.annotation;
+
+import tk.kahsolt.sqlbuilder.SQLBuilder;
+import tk.kahsolt.sqlbuilder.sql.Dialect;
+import tk.kahsolt.sqlbuilder.sql.Prepared;
+import tk.kahsolt.sqlbuilder.sql.Query;
+import tk.kahsolt.sqlbuilder.sql.Table;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+
+// Renders the statements of every @Statements interface with SQLBuilder while javac runs, so the SQL strings,
+// and the mismatches between their '?' and the method parameters, are known before the program starts.
+// For interface UserQueries it generates UserQueriesSQL:
+//   UserQueriesSQL.SQLITE.FIND_BY_NAME                                 the SQL of findByName(), one class per dialect
+//   UserQueriesSQL.SQLITE.findByName(connection, name)                 prepared and bound, the caller closes it
+//   UserQueriesSQL.bindFindByName(statement, name)                     typed setXxx() calls, no boxing for primitives
+// Registered in META-INF/services, javac picks it up from the classpath.
+@SupportedAnnotationTypes("tk.kahsolt.sqlbuilder.annotation.Statements")
+public class StatementProcessor extends AbstractProcessor {
+
+    private static final class Method {
+
+        private final ExecutableElement element;
+        private final String name;
+        private final String constant;                  // findByName => FIND_BY_NAME
+        private final boolean script;                   // @CreateTable: several statements, no helpers, see Script.split()
+        private final Map<Dialect, String> sqls = new EnumMap<>(Dialect.class);
+
+        private Method(ExecutableElement element) {
+            this.element = element;
+            this.name = element.getSimpleName().toString();
+            this.constant = constantOf(name);
+            this.script = element.getAnnotation(CreateTable.class)!=null;
+        }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() { return SourceVersion.latestSupported(); }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+        for (Element element : round.getElementsAnnotatedWith(Statements.class)) {
+            if(element.getKind()!=ElementKind.INTERFACE) {
+                error(element, "@Statements goes on an interface");
+                continue;
+            }
+            try {
+                generate((TypeElement) element);
+            } catch (IOException e) {
+                error(element, "cannot write the generated source: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement type) throws IOException {
+        Statements statements = type.getAnnotation(Statements.class);
+        Dialect[] dialects = statements.dialects();
+        ArrayList<Method> methods = new ArrayList<>();
+        boolean failed = false;
+        for (Dialect dialect : dialects) {
+            SQLBuilder builder = new SQLBuilder(dialect);
+            int i = 0;
+            for (Element enclosed : type.getEnclosedElements()) {
+                if(enclosed.getKind()!=ElementKind.METHOD) continue;
+                ExecutableElement element = (ExecutableElement) enclosed;
+                if(element.getModifiers().contains(Modifier.DEFAULT) || element.getModifiers().contains(Modifier.STATIC)) continue;
+                if(methods.size()==i) methods.add(new Method(element));
+                Method method = methods.get(i++);
+                String sql = render(builder, method.element, dialect);
+                if(sql==null) failed = true;
+                else method.sqls.put(dialect, sql);
+            }
+        }
+        if(failed) return;
+
+        String pkg = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String name = statements.name().isEmpty() ? type.getSimpleName() + "SQL" : statements.name();
+        StringBuilder sb = new StringBuilder(4096);
+        if(!pkg.isEmpty()) sb.append("package ").append(pkg).append(";\n\n");
+        sb.append("import java.sql.Connection;\n")
+          .append("import java.sql.PreparedStatement;\n")
+          .append("import java.sql.SQLException;\n\n")
+          .append("// Generated by ").append(StatementProcessor.class.getName()).append(" from ").append(type.getQualifiedName()).append(", do not edit.\n")
+          .append("public final class ").append(name).append(" {\n\n")
+          .append("    private ").append(name).append("() { }\n");
+        for (Dialect dialect : dialects) {
+            sb.append("\n    public static final class ").append(dialect.name()).append(" {\n\n")
+              .append("        private ").append(dialect.name()).append("() { }\n\n");
+            for (Method method : methods) {
+                sb.append("        public static final String ").append(method.constant).append(" = ");
+                literal(sb, method.sqls.get(dialect)).append(";\n");
+            }
+            for (Method method : methods) {
+                if(method.script) continue;
+                sb.append("\n        public static PreparedStatement ").append(method.name).append("(Connection connection");
+                parameters(sb, method, true).append(") throws SQLException {\n")
+                  .append("            PreparedStatement statement = connection.prepareStatement(").append(method.constant).append(");\n")
+                  .append("            try {\n")
+                  .append("                ").append(binderOf(method)).append("(statement");
+                parameters(sb, method, false).append(");\n")
+                  .append("            } catch (SQLException | RuntimeException e) {\n")
+                  .append("                statement.close();\n")
+                  .append("                throw e;\n")
+                  .append("            }\n")
+                  .append("            return statement;\n")
+                  .append("        }\n");
+            }
+            sb.append("    }\n");
+        }
+        for (Method method : methods) {
+            if(method.script) continue;
+            sb.append("\n    public static void ").append(binderOf(method)).append("(PreparedStatement statement");
+            parameters(sb, method, true).append(") throws SQLException {\n");
+            int index = 1;
+            for (VariableElement parameter : method.element.getParameters()) {
+                sb.append("        ");
+                setter(sb, typeOf(parameter), index++, parameter.getSimpleName().toString()).append(";\n");
+            }
+            sb.append("    }\n");
+        }
+        sb.append("\n}\n");
+
+        String qualified = pkg.isEmpty() ? name : pkg + "." + name;
+        try (Writer writer = processingEnv.getFiler().createSourceFile(qualified, type).openWriter()) {
+            writer.write(sb.toString());
+        }
+    }
+
+    // the SQL of one method, null after reporting an error on it
+    private String render(SQLBuilder builder, ExecutableElement element, Dialect dialect) {
+        Select select = element.getAnnotation(Select.class);
+        Insert insert = element.getAnnotation(Insert.class);
+        Update update = element.getAnnotation(Update.class);
+        Delete delete = element.getAnnotation(Delete.class);
+        CreateTable create = element.getAnnotation(CreateTable.class);
+        int count = (select!=null ? 1 : 0) + (insert!=null ? 1 : 0) + (update!=null ? 1 : 0) + (delete!=null ? 1 : 0) + (create!=null ? 1 : 0);
+        if(count!=1) {
+            error(element, "need exactly one of @Select, @Insert, @Update, @Delete or @CreateTable");
+            return null;
+        }
+        try {
+            if(create!=null) {
+                if(!element.getParameters().isEmpty()) {
+                    error(element, "@CreateTable takes no parameters");
+                    return null;
+                }
+                return createTable(builder, create).end();
+            }
+            Query query;
+            if(select!=null) {
+                query = builder.select(select.distinct(), select.value()).from(select.from());
+                where(query, select.where());
+                if(select.groupBy().length!=0) query.groupBy(select.groupBy());
+                for (String order : select.orderBy()) {
+                    String[] parts = order.trim().split("\\s+");
+                    boolean reverse = parts.length==2 && parts[1].equalsIgnoreCase("DESC");
+                    if(parts.length > 2 || parts.length==2 && !reverse && !parts[1].equalsIgnoreCase("ASC"))
+                        throw new IllegalArgumentException("bad orderBy \"" + order + "\"");
+                    query.orderBy(parts[0], reverse);
+                }
+                if(select.offset() >= 0) query.limit(select.offset(), select.limit() >= 0 ? select.limit() : Long.MAX_VALUE);
+                else if(select.limit() >= 0) query.limit(select.limit());
+            } else if(insert!=null) {
+                query = (insert.replace() ? builder.replace(insert.into()) : builder.insert(insert.into())).into(insert.columns()).values();
+                if(insert.onConflict().length!=0 || insert.doNothing()) {
+                    query.onConflict(insert.onConflict());
+                    if(insert.doNothing()) query.doNothing();
+                    else query.doUpdate(insert.doUpdate());
+                }
+            } else if(update!=null) {
+                query = builder.update(update.table());
+                for (String column : update.set()) query.set(column);
+                where(query, update.where());
+            } else {
+                query = builder.delete(delete.from());
+                where(query, delete.where());
+            }
+            Prepared prepared = query.prepare();
+            if(prepared==null) {
+                error(element, "cannot be rendered for " + dialect);
+                return null;
+            }
+            int expected = prepared.getUnboundCount();
+            if(expected!=prepared.getParamCount()) {
+                error(element, "only '?' can be bound: " + prepared.getSql());
+                return null;
+            }
+            if(expected!=element.getParameters().size()) {
+                error(element, expected + " '?' but " + element.getParameters().size() + " parameters: " + prepared.getSql());
+                return null;
+            }
+            return prepared.getSql();
+        } catch (RuntimeException e) {      // a misuse the builder did not turn into null
+            error(element, e.getMessage()!=null ? e.getMessage() : e.toString());
+            return null;
+        }
+    }
+
+    private static Table createTable(SQLBuilder builder, CreateTable create) {
+        Table table = builder.createTable(create.value(), create.overwrite()).indexForeignKeys(create.indexForeignKeys());
+        for (Column column : create.columns()) {
+            Table.Column col = table.column(column.value());
+            if(!column.type().isEmpty()) col.type(column.type());
+            col.primaryKey(column.primaryKey()).autoIncrement(column.autoIncrement())
+               .notNull(column.notNull()).unique(column.unique())
+               .initSetCurrent(column.initSetCurrent()).updateSetCurrent(column.updateSetCurrent());
+            if(!column.defaultValue().isEmpty()) col.defaultValue(defaultOf(column.defaultValue()));
+            if(!column.referencesTo().isEmpty())
+                col.referencesTo(column.referencesTo(), column.referencedColumn(), column.updateCascade(), column.deleteCascade());
+        }
+        for (Index index : create.indexes()) {
+            Table.Index idx = new Table.Index().unique(index.unique());
+            if(!index.name().isEmpty()) idx.name(index.name());
+            if(!index.where().isEmpty()) idx.where(index.where());
+            for (String key : index.value()) {
+                String[] parts = key.trim().split("\\s+");
+                idx.column(parts[0], parts.length==2 && parts[1].equalsIgnoreCase("DESC"));
+            }
+            table.index(idx);
+        }
+        return table;
+    }
+
+    private static Object defaultOf(String value) {     // numbers stay numbers, anything else is a quoted string
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            try {
+                return Double.valueOf(value);
+            } catch (NumberFormatException notDouble) {
+                return value;
+            }
+        }
+    }
+
+    // "id", "age >", "name LIKE", "OR level BETWEEN", "deleted IS NULL", "id = ?"
+    private static void where(Query query, String[] terms) {
+        for (int i = 0; i < terms.length; i++) {
+            String term = terms[i].trim();
+            boolean or = false;
+            if(term.regionMatches(true, 0, "OR ", 0, 3)) {
+                or = true;
+                term = term.substring(3).trim();
+            } else if(term.regionMatches(true, 0, "AND ", 0, 4)) {
+                term = term.substring(4).trim();
+            }
+            int space = term.indexOf(' ');
+            String column = space < 0 ? term : term.substring(0, space);
+            String operator = space < 0 ? "=" : term.substring(space + 1).trim().replaceAll("\\s+", " ").toUpperCase();
+            if(operator.endsWith(" ?")) operator = operator.substring(0, operator.length() - 2);
+            else if(operator.equals("?")) operator = "=";
+            if(i==0 && or) throw new IllegalArgumentException("the first where term cannot be OR");
+            Query.Condition condition = i==0 ? query.where(column) : or ? query.or(column) : query.and(column);
+            switch (operator) {
+                case "=": condition.eq(); break;
+                case "<>": case "!=": condition.ne(); break;
+                case ">": condition.gt(); break;
+                case ">=": condition.ge(); break;
+                case "<": condition.lt(); break;
+                case "<=": condition.le(); break;
+                case "LIKE": condition.like(); break;
+                case "BETWEEN": condition.between(); break;
+                case "IS NULL": condition.isnull(); break;
+                case "IS NOT NULL": condition.isnotnull(); break;
+                default: throw new IllegalArgumentException("unknown operator in where \"" + terms[i] + "\"");
+            }
+        }
+    }
+
+    private static StringBuilder parameters(StringBuilder sb, Method method, boolean typed) {
+        for (VariableElement parameter : method.element.getParameters()) {
+            sb.append(", ");
+            if(typed) sb.append(typeOf(parameter)).append(' ');
+            sb.append(parameter.getSimpleName());
+        }
+        return sb;
+    }
+
+    private static StringBuilder setter(StringBuilder sb, String type, int index, String name) {
+        String setter;
+        switch (type) {
+            case "long": setter = "setLong"; break;
+            case "int": setter = "setInt"; break;
+            case "short": setter = "setShort"; break;
+            case "byte": setter = "setByte"; break;
+            case "double": setter = "setDouble"; break;
+            case "float": setter = "setFloat"; break;
+            case "boolean": return sb.append("statement.setInt(").append(index).append(", ").append(name).append(" ? 1 : 0)");
+            case "String": setter = "setString"; break;
+            case "byte[]": setter = "setBytes"; break;
+            case "java.math.BigDecimal": setter = "setBigDecimal"; break;
+            case "java.sql.Timestamp": setter = "setTimestamp"; break;
+            case "java.sql.Date": setter = "setDate"; break;
+            case "java.sql.Time": setter = "setTime"; break;
+            default:    // boxed, nullable or anything Prepared knows
+                return sb.append(Prepared.class.getName()).append(".bind(statement, ").append(index).append(", ").append(name).append(')');
+        }
+        return sb.append("statement.").append(setter).append('(').append(index).append(", ").append(name).append(')');
+    }
+
+    private static String typeOf(VariableElement parameter) {     // java.lang.Long => Long
+        String type = parameter.asType().toString();
+        return type.startsWith("java.lang.") && type.indexOf('.', 10) < 0 ? type.substring(10) : type;
+    }
+
+    private static String binderOf(Method method) {
+        return "bind" + Character.toUpperCase(method.name.charAt(0)) + method.name.substring(1);
+    }
+
+    private static String constantOf(String name) {     // findByName => FIND_BY_NAME
+        StringBuilder sb = new StringBuilder(name.length() + 8);
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if(Character.isUpperCase(c) && i != 0 && !Character.isUpperCase(name.charAt(i - 1))) sb.append('_');
+            sb.append(Character.toUpperCase(c));
+        }
+        return sb.toString();
+    }
+
+    private static StringBuilder literal(StringBuilder sb, String str) {
+        sb.append('"');
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if(c < ' ') sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        return sb.append('"');
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+}
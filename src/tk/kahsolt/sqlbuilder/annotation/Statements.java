@@ -0,0 +1,17 @@
+package tk.kahsolt.sqlbuilder.annotation;
+
+import tk.kahsolt.sqlbuilder.sql.Dialect;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// An interface of statement declarations: StatementProcessor renders each annotated method with SQLBuilder at
+// compile time and generates <Interface>SQL holding, per dialect, the SQL constants and their binders.
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface Statements {
+    Dialect[] dialects() default {Dialect.SQLITE};
+    String name() default "";   // of the generated class, <Interface>SQL when empty
+}
@@ -0,0 +1,15 @@
+package tk.kahsolt.sqlbuilder.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// SET column = ? for each of set(), then the where() terms as in @Select
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.METHOD)
+public @interface Update {
+    String table();
+    String[] set();
+    String[] where() default {};
+}
@@ -0,0 +1,110 @@
+/*
+ *  * Copyright (c)
+ *  * Author : Kahsolt <kahsolt@qq.com>
+ *  * Date : 2018-1-6
+ *  * Version : 0.3.3
+ *  * License : GPLv3
+ *  * Description : 造句性能基准，按方言输出吞吐量(ops/s)与每次造句的分配量(B/op)
+ */
+
+package tk.kahsolt.sqlbuilder.example;
+
+import tk.kahsolt.sqlbuilder.*;
+import tk.kahsolt.sqlbuilder.sql.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class Benchmark {
+
+    private interface Scenario {
+        String run(SQLBuilder sqlBuilder);
+    }
+
+    private static final Map<String, Scenario> SCENARIOS = new LinkedHashMap<>();
+    static {
+        SCENARIOS.put("select", b -> b.select("username", "time").from("Log")
+                .where("username").eq("kahsolt")
+                .orderBy("date", true)
+                .limit(20).end());
+        SCENARIOS.put("insert", b -> b.insert("User").into("username", "password", "time")
+                .values("kahsolt", 13759, null).end());
+        SCENARIOS.put("update", b -> b.update("User")
+                .set("name", "kahsolt").set("age", 12)
+                .where("id").eq(42).end());
+        SCENARIOS.put("delete", b -> b.delete("User")
+                .where("username").eq("kahsolt").end());
+        SCENARIOS.put("values x100", b -> {
+            Query query = b.insert("User").into("id", "username", "score");
+            for (int i = 0; i < 100; i++) query.values(i, "user", 0.5);
+            return query.end();
+        });
+        SCENARIOS.put("where chain", b -> b.select("*").from("User")
+                .where("a").eq(1)
+                .and("b").gt(2)
+                .or("c").like("x")
+                .and("d").between(3, 4)
+                .or("e").isnull().end());
+        SCENARIOS.put("join", b -> b.select(true, "name", "COUNT(price)").from("`Order`")
+                .join("Author").on("author")
+                .join("Book", "OUTER").on("book", "title")
+                .where("year").between(2016, 2018)
+                .groupBy("author")
+                .having("COUNT(title)").gt(5)
+                .orderBy("year", true)
+                .limit(100).end());
+        SCENARIOS.put("createTable", b -> b.createTable("Message")
+                .column("id").autoIncrement().end()
+                .column("poster").referencesTo("User").end()
+                .column("content").type(100).defaultValue("nothing").end()
+                .column("likes").defaultValue(0).end()
+                .column("create_time").initSetCurrent().end()
+                .column("update_time").updateSetCurrent().end()      // a TRIGGER under SQLite
+                .engine("MyISAM").charset("utf8mb4").end());
+    }
+
+    private static volatile long sink;  // keeps the JIT from eliminating the rendering
+
+    public static void main(String[] args) {
+        long warmupMillis = args.length > 0 ? Long.parseLong(args[0]) : 1000;
+        long measureMillis = args.length > 1 ? Long.parseLong(args[1]) : 2000;
+
+        System.out.println(String.format("%-8s %-14s %14s %12s", "dialect", "scenario", "ops/s", "B/op"));
+        for (Dialect dialect : Dialect.values()) {
+            SQLBuilder sqlBuilder = new SQLBuilder(dialect);
+            for (Map.Entry<String, Scenario> scenario : SCENARIOS.entrySet()) {
+                measure(sqlBuilder, scenario.getValue(), warmupMillis);
+                double[] result = measure(sqlBuilder, scenario.getValue(), measureMillis);
+                System.out.println(String.format("%-8s %-14s %14.0f %12s", dialect, scenario.getKey(), result[0],
+                        result[1] < 0 ? "n/a" : String.format("%.0f", result[1])));
+            }
+        }
+    }
+
+    private static double[] measure(SQLBuilder sqlBuilder, Scenario scenario, long millis) {
+        long ops = 0, length = 0;
+        long allocated = allocatedBytes();
+        long start = System.nanoTime(), deadline = start + millis * 1000000L, now;
+        do {
+            for (int i = 0; i < 64; i++) length += scenario.run(sqlBuilder).length();
+            ops += 64;
+        } while ((now = System.nanoTime()) < deadline);
+        long allocatedAfter = allocatedBytes();
+        sink += length;
+        double opsPerSecond = ops * 1e9 / (now - start);
+        double bytesPerOp = allocated < 0 ? -1 : (double) (allocatedAfter - allocated) / ops;
+        return new double[]{opsPerSecond, bytesPerOp};
+    }
+
+    private static long allocatedBytes() {  // HotSpot only, same counter the JMH gc profiler reads
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if(bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) bean;
+            if(hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled())
+                return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+}
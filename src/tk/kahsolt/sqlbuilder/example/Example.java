@@ -12,6 +12,8 @@ package tk.kahsolt.sqlbuilder.example;
 import tk.kahsolt.sqlbuilder.*;
 import tk.kahsolt.sqlbuilder.sql.*;
 
+import java.util.Arrays;
+
 public class Example {
 
     public static void main(String[] args) {
@@ -130,14 +132,14 @@ public class Example {
         sql = mysqlBuilder.select("name").from("User")
                 .where("age").eq(
                         mysqlBuilder.select("AVERAGE(age)").from("User")
-                                .where("gender").eq("female").end()         // 算符型子查询
+                                .where("gender").eq("female")               // 算符型子查询，传Query本身，字符串一律按值加引号
                 ).end();
         System.out.println(sql);
 
         sql = mysqlBuilder.select("name").from("User")
                 .where("age").gt(
                         mysqlBuilder.select("age").from("User")
-                                .where("gender").eq("female").any().end()   // 量词型子查询，可调用any()/some()/all()
+                                .where("gender").eq("female").any()         // 量词型子查询，可调用any()/some()/all()
                 ).end();
         System.out.println(sql);
 
@@ -206,6 +208,71 @@ public class Example {
                 .end(); // this one closes alterTable()
         System.out.println(sql);
 
+        System.out.println("\n[FROM v0.4]");
+
+        // 流式批量插入：按方言的语句长度/绑定变量上限自动切分成多条多行INSERT
+        sqliteBuilder.insert("User").into("username", "age").bulk()
+                .maxRows(2)                                                // 可另行限制每句行数、字节数、参数个数
+                .write(Arrays.asList(new Object[]{"kahsolt", 13}, new Object[]{"luper", 31}, new Object[]{"moe", 7}).iterator(),
+                        System.out::println);
+
+        // 参数化模式：值一律产生 ? 占位，prepare() 同时给出SQL与按序排列的参数，可直接绑定到PreparedStatement
+        SQLBuilder paramBuilder = new SQLBuilder().enableParameterized();
+        Prepared prepared = paramBuilder.update("User")
+                .set("age", 14)
+                .where("username").eq("kahsolt").prepare();
+        System.out.println(prepared.getSql() + "  " + Arrays.toString(prepared.getParams()));
+
+        // UPSERT：主键/唯一键冲突时原地更新(或忽略)，不像REPLACE那样先删后插
+        sql = sqliteBuilder.insert("User").into("id", "username", "age")
+                .values(5, "hahah", 13)
+                .values(6, "moe", 7)
+                .onConflict("id").doUpdate().end();      // doUpdate() 无参则更新除冲突键外的所有插入列
+        System.out.println(sql);
+        sql = mysqlBuilder.insert("User").into("id", "username")
+                .values(5, "hahah")
+                .onConflict("id").doUpdate("username").end();
+        System.out.println(sql);
+        sql = sqliteBuilder.insert("User").into("id", "username")
+                .values(5, "hahah")
+                .onConflict("id").doNothing().end();
+        System.out.println(sql);
+
+        // 键集分页(seek)：从上一页最后一行的排序键之后接着取，代替越翻越慢的 LIMIT offset, count
+        sql = sqliteBuilder.select("id", "title", "year").from("Book")
+                .orderBy("year", true).orderBy("id", true)
+                .seek(2018, 1379)                           // 按orderBy()的列依次传入上一页末行的键值，无参为第一页
+                .limit(100).end();
+        System.out.println(sql);
+
+        // 索引：复合列(可降序)、部分索引where()、表达式索引、MySQL前缀长度/索引类型，建表时可为外键列自动建索引
+        sql = sqliteBuilder.createTable("Post")
+                .column("id").autoIncrement().end()
+                .column("poster").referencesTo("User").end()
+                .column("title").type(200).end()
+                .column("create_time").initSetCurrent().end()
+                .index().column("poster").column("create_time", true).end()    // 默认索引名 idx_表名_列名
+                .index().expression("lower(title)").where("title IS NOT NULL").end()
+                .indexForeignKeys().end();                                      // poster已是索引首列，不再重复
+        System.out.println(sql);
+        sql = mysqlBuilder.createIndex("User", "username").unique().end().end();
+        System.out.println(sql);
+        sql = mysqlBuilder.dropIndex("User", "uq_User_username").end();
+        System.out.println(sql);
+
+        // 截断策略：SQLite默认的VACUUM会重写整个库文件，热表可只DELETE，或按建表定义DROP后重建
+        sql = sqliteBuilder.truncateTable("Post").truncateStrategy(Table.Truncate.NONE).end();
+        System.out.println(sql);
+
+        // SQLite时间戳：不建触发器，由同一SQLBuilder产生的UPDATE自动追加 列 = CURRENT_TIMESTAMP
+        SQLBuilder inlineBuilder = new SQLBuilder().enableInlineTimestamps();
+        inlineBuilder.createTable("Note")
+                .column("id").autoIncrement().end()
+                .column("content").type(100).end()
+                .column("update_time").updateSetCurrent().end().end();
+        sql = inlineBuilder.update("Note").set("content", "hello").where("id").eq(1).end();
+        System.out.println(sql);
+
         System.out.println("\n--------------------\nEnd of SQLBuilder Examples ;)");
 
     }
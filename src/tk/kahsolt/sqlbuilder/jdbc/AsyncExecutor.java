@@ -0,0 +1,199 @@
+package tk.kahsolt.sqlbuilder.jdbc;
+
+import tk.kahsolt.sqlbuilder.sql.*;
+
+import javax.sql.DataSource;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+// Runs queries and transactions off the caller's thread, one pooled connection per call. On Java 21+ every call
+// gets a virtual thread, so thousands of blocking lookups cost no platform thread each; before that a fixed pool
+// of maxConcurrency threads is used. Either way at most maxConcurrency calls hold a connection at once.
+// Cancelling the future or hitting timeout() calls Statement.cancel() on the running statement.
+public class AsyncExecutor implements AutoCloseable {
+
+    public static final int DEFAULT_CONCURRENCY = 32;
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "sqlbuilder-async-timeout");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private interface Work<T> {
+        T run(Connection connection, Call call) throws SQLException;
+    }
+
+    // the statement a call is running, for cancel()
+    private static final class Call {
+
+        private volatile Statement statement;
+        private volatile boolean cancelled;
+
+        private void track(Statement statement) {
+            this.statement = statement;
+            if(cancelled) throw new CancellationException();    // cancelled while waiting, don't start
+        }
+
+        private void cancel() {
+            cancelled = true;
+            Statement statement = this.statement;
+            if(statement==null) return;
+            try {
+                statement.cancel();
+            } catch (SQLException ignored) {
+                // already finished or closed
+            }
+        }
+    }
+
+    private final DataSource dataSource;
+    private final Semaphore gate;       // calls holding a connection
+    private final ExecutorService executor;
+    private final boolean virtual;
+
+    private long timeoutNanos;          // 0 for none
+    private RenderListener metrics;     // SQLBuilder.getRenderListener(), gets every statement
+    private volatile boolean closed;
+
+    public AsyncExecutor(DataSource dataSource) { this(dataSource, DEFAULT_CONCURRENCY); }
+    public AsyncExecutor(DataSource dataSource, int maxConcurrency) {
+        this.dataSource = dataSource;
+        this.gate = new Semaphore(Math.max(1, maxConcurrency), true);
+        ExecutorService executor;
+        try {
+            executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {  // before Java 21
+            executor = null;
+        }
+        this.virtual = executor!=null;
+        this.executor = executor!=null ? executor : Executors.newFixedThreadPool(gate.availablePermits(), r -> {
+            Thread thread = new Thread(r, "sqlbuilder-async");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public AsyncExecutor timeout(long time, TimeUnit unit) { this.timeoutNanos = unit.toNanos(Math.max(0, time)); return this; }
+    public AsyncExecutor metrics(RenderListener metrics) { this.metrics = metrics; return this; }
+
+    public boolean isVirtual() { return virtual; }
+    public boolean isClosed() { return closed; }
+    public int getWaiting() { return gate.getQueueLength(); }     // calls waiting for the gate
+
+    public CompletableFuture<List<Object[]>> query(Query query) { return query(query, RowStream.ARRAYS); }
+    public <T> CompletableFuture<List<T>> query(Query query, RowStream.Binder<T> binder) {
+        if(query.getKeyword()!=Keyword.SELECT) return failed(new IllegalArgumentException("need a SELECT"));
+        Prepared prepared = query.prepare();
+        if(prepared==null) return failed(new IllegalArgumentException("query cannot be rendered"));
+        return query(prepared, binder);
+    }
+    public <T> CompletableFuture<List<T>> query(Prepared prepared, RowStream.Binder<T> binder) {
+        return submit((connection, call) -> {
+            ArrayList<T> rows = new ArrayList<>();
+            try (RowStream.Cursor<T> cursor = new RowStream(connection).queryTimeout(timeoutSeconds()).metrics(metrics).open(prepared, binder, call::track)) {
+                while (cursor.hasNext()) rows.add(cursor.next());
+            }
+            return rows;
+        });
+    }
+
+    public CompletableFuture<Integer> update(Query query) {    // INSERT/UPDATE/DELETE/REPLACE, the update count
+        Prepared prepared = query.prepare();
+        if(prepared==null) return failed(new IllegalArgumentException("query cannot be rendered"));
+        return update(prepared);
+    }
+    public CompletableFuture<Integer> update(Prepared prepared) {
+        return submit((connection, call) -> {
+            try (PreparedStatement statement = prepared.prepare(connection)) {
+                return execute(statement, prepared.getSql(), call, () -> statement.executeUpdate());
+            }
+        });
+    }
+
+    // Transaction.execute() on a pooled connection: batching, busy retries and one update count per block as there;
+    // the whole transaction is one execution to metrics
+    public CompletableFuture<int[]> execute(Transaction transaction) {
+        return submit((connection, call) -> {
+            int seconds = timeoutSeconds();
+            long start = System.nanoTime();
+            int[] updateCounts = transaction.execute(connection, statement -> {
+                call.track(statement);
+                if(seconds!=0) try {
+                    statement.setQueryTimeout(seconds);
+                } catch (SQLException ignored) {
+                    // cancel() still stops it
+                }
+            });
+            if(metrics!=null) metrics.onExecute(null, String.join("; ", transaction.getStatements()), System.nanoTime() - start);
+            return updateCounts;
+        });
+    }
+
+    @Override
+    public void close() {   // queued and running calls still complete
+        closed = true;
+        executor.shutdown();
+    }
+
+    private interface Execution {
+        int run() throws SQLException;
+    }
+    private int execute(Statement statement, String sql, Call call, Execution execution) throws SQLException {
+        call.track(statement);
+        int seconds = timeoutSeconds();
+        if(seconds!=0) statement.setQueryTimeout(seconds);   // the driver's own guard, in case cancel() is not supported
+        long start = System.nanoTime();
+        int count = execution.run();
+        if(metrics!=null) metrics.onExecute(Keyword.of(sql), sql, System.nanoTime() - start);
+        return count;
+    }
+
+    private int timeoutSeconds() { return timeoutNanos==0 ? 0 : (int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(timeoutNanos + 999_999_999L)); }
+
+    private <T> CompletableFuture<T> submit(Work<T> work) {
+        if(closed) return failed(new IllegalStateException("async executor is closed"));
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Call call = new Call();
+        future.whenComplete((result, e) -> { if(e!=null) call.cancel(); });   // cancel() and timeouts reach the statement
+        if(timeoutNanos!=0) {
+            ScheduledFuture<?> timer = TIMER.schedule(() -> future.completeExceptionally(new TimeoutException("query timed out")), timeoutNanos, TimeUnit.NANOSECONDS);
+            future.whenComplete((result, e) -> timer.cancel(false));
+        }
+        try {
+            executor.execute(() -> run(work, call, future));
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new IllegalStateException("async executor is closed", e));
+        }
+        return future;
+    }
+
+    private <T> void run(Work<T> work, Call call, CompletableFuture<T> future) {
+        if(future.isDone()) return;     // cancelled or timed out while queued
+        try {
+            gate.acquire();
+        } catch (InterruptedException e) {
+            future.completeExceptionally(e);
+            return;
+        }
+        try {
+            if(future.isDone()) return;
+            try (Connection connection = dataSource.getConnection()) {
+                future.complete(work.run(connection, call));
+            }
+        } catch (Throwable e) {
+            future.completeExceptionally(e);    // no-op if already cancelled
+        } finally {
+            gate.release();
+        }
+    }
+
+    private static <T> CompletableFuture<T> failed(Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+}
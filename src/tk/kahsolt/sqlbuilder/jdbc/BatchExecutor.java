@@ -0,0 +1,111 @@
+package tk.kahsolt.sqlbuilder.jdbc;
+
+import tk.kahsolt.sqlbuilder.sql.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+public class BatchExecutor {
+
+    public interface Listener {
+        void onBatch(int batch, int rows, int[] updateCounts, long nanos);
+    }
+
+    public static class Result {
+
+        private long rows;
+        private long batches;
+        private long commits;
+        private long updated;       // sum of the known update counts
+        private long nanos;
+        private long maxBatchNanos;
+
+        public long getRows() { return rows; }
+        public long getBatches() { return batches; }
+        public long getCommits() { return commits; }
+        public long getUpdated() { return updated; }
+        public long getNanos() { return nanos; }
+        public long getMaxBatchNanos() { return maxBatchNanos; }
+
+        @Override
+        public String toString() {
+            return String.format("Result(rows=%d, batches=%d, commits=%d, updated=%d, time=%.3fms, maxBatch=%.3fms)",
+                    rows, batches, commits, updated, nanos / 1e6, maxBatchNanos / 1e6);
+        }
+    }
+
+    private final Connection connection;
+
+    private int batchSize = 1000;       // rows per executeBatch()
+    private int commitEvery = 0;        // batches per commit, 0 for a single commit at the end
+    private Listener listener;
+    private RenderListener metrics;     // SQLBuilder.getRenderListener(), gets every executeBatch()
+
+    public BatchExecutor(Connection connection) { this.connection = connection; }
+
+    public BatchExecutor batchSize(int batchSize) { this.batchSize = Math.max(1, batchSize); return this; }
+    public BatchExecutor commitEvery(int batches) { this.commitEvery = Math.max(0, batches); return this; }
+    public BatchExecutor listener(Listener listener) { this.listener = listener; return this; }
+    public BatchExecutor metrics(RenderListener metrics) { this.metrics = metrics; return this; }
+
+    // template is an INSERT/UPDATE/DELETE with '?' (values(), set(column), eq()...), each row fills its placeholders in order
+    public Result execute(Query template, Stream<Object[]> rows) throws SQLException { return execute(template.prepare(), rows.iterator()); }
+    public Result execute(Query template, Iterator<Object[]> rows) throws SQLException { return execute(template.prepare(), rows); }
+    public Result execute(Prepared template, Stream<Object[]> rows) throws SQLException { return execute(template, rows.iterator()); }
+    public Result execute(Prepared template, Iterator<Object[]> rows) throws SQLException {
+        Result result = new Result();
+        long start = System.nanoTime();
+        boolean autoCommit = connection.getAutoCommit();
+        if(autoCommit) connection.setAutoCommit(false);
+        try (PreparedStatement statement = connection.prepareStatement(template.getSql())) {
+            int pending = 0, unbound = template.getUnboundCount();
+            while (rows.hasNext()) {
+                Object[] row = rows.next();
+                if(row.length!=unbound)     // the driver would keep the previous row's value in a missing slot
+                    throw new IllegalArgumentException("row " + (result.rows + 1) + " has " + row.length + " values for " + unbound + " '?'");
+                template.bind(statement, row);
+                statement.addBatch();
+                result.rows++;
+                if(++pending==batchSize) {
+                    flush(statement, template.getSql(), pending, result);
+                    pending = 0;
+                }
+            }
+            if(pending!=0) flush(statement, template.getSql(), pending, result);
+            if(commitEvery==0 || result.batches % commitEvery != 0) {
+                connection.commit();
+                result.commits++;
+            }
+        } catch (SQLException | RuntimeException e) {
+            try {
+                connection.rollback();  // batches committed by commitEvery stay committed
+            } catch (SQLException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        } finally {
+            if(autoCommit) connection.setAutoCommit(true);
+        }
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private void flush(PreparedStatement statement, String sql, int rows, Result result) throws SQLException {
+        long start = System.nanoTime();
+        int[] updateCounts = statement.executeBatch();
+        if(metrics!=null) metrics.onExecute(Keyword.of(sql), sql, System.nanoTime() - start);
+        result.batches++;
+        for (int count : updateCounts) if(count >= 0) result.updated += count;
+        if(commitEvery!=0 && result.batches % commitEvery == 0) {
+            connection.commit();
+            result.commits++;
+        }
+        long nanos = System.nanoTime() - start;
+        if(nanos > result.maxBatchNanos) result.maxBatchNanos = nanos;
+        if(listener!=null) listener.onBatch((int) result.batches, rows, updateCounts, nanos);
+    }
+
+}
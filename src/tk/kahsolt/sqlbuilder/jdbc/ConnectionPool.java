@@ -0,0 +1,388 @@
+package tk.kahsolt.sqlbuilder.jdbc;
+
+import tk.kahsolt.sqlbuilder.sql.*;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+// A small DataSource that keeps up to maxSize connections open. The PRAGMAs (SQLite) and init statements run once
+// per physical connection. Each connection keeps its idle PreparedStatements by SQL text in an LRU, so the same
+// rendered statement is parsed once per connection. close() on what getConnection()/prepareStatement() return
+// gives it back instead of closing it.
+public class ConnectionPool implements DataSource, AutoCloseable {
+
+    public interface Opener {
+        Connection open() throws SQLException;
+    }
+
+    private final Dialect dialect;
+    private final Opener opener;
+
+    private int maxSize = 8;
+    private int statementCacheSize = 64;        // idle PreparedStatements kept per connection
+    private long maxWaitNanos = TimeUnit.SECONDS.toNanos(30);
+    private final ArrayList<String> initSql = new ArrayList<>();
+
+    private final ArrayDeque<Physical> idle = new ArrayDeque<>();     // LIFO, the warmest first
+    private int size;                           // open physical connections
+    private boolean closed;
+
+    private long borrows;
+    private long waits;                         // borrows that found no idle connection
+    private long waitNanos;
+    private long maxWaitedNanos;
+    private long opened;
+    private long statementHits;
+    private long statementMisses;
+
+    public ConnectionPool(Dialect dialect, String url) { this(dialect, () -> DriverManager.getConnection(url)); }
+    public ConnectionPool(Dialect dialect, DataSource dataSource) { this(dialect, dataSource::getConnection); }
+    public ConnectionPool(Dialect dialect, Opener opener) {
+        this.dialect = dialect;
+        this.opener = opener;
+    }
+
+    public ConnectionPool maxSize(int maxSize) { this.maxSize = Math.max(1, maxSize); return this; }
+    public ConnectionPool statementCacheSize(int size) { this.statementCacheSize = Math.max(0, size); return this; }
+    public ConnectionPool maxWait(long time, TimeUnit unit) { this.maxWaitNanos = unit.toNanos(Math.max(0, time)); return this; }
+    public ConnectionPool pragma(String name, Object value) {   // SQLite, e.g. pragma("journal_mode", "WAL"); ignored on other dialects
+        if(dialect==Dialect.SQLITE) initSql.add("PRAGMA " + name + " = " + value);
+        return this;
+    }
+    public ConnectionPool initSql(String sql) { initSql.add(sql); return this; }   // e.g. "SET NAMES utf8mb4"
+
+    public Dialect getDialect() { return dialect; }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Physical physical = borrow();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, new Logical(physical));
+    }
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("the pool opens its connections itself");
+    }
+
+    // stats
+    public synchronized int getSize() { return size; }
+    public synchronized int getIdle() { return idle.size(); }
+    public synchronized long getBorrows() { return borrows; }
+    public synchronized long getOpened() { return opened; }
+    public synchronized long getWaits() { return waits; }
+    public synchronized double getMeanWaitMicros() { return borrows==0 ? 0.0 : waitNanos / 1e3 / borrows; }
+    public synchronized long getMaxWaitNanos() { return maxWaitedNanos; }
+    public synchronized long getStatementHits() { return statementHits; }
+    public synchronized long getStatementMisses() { return statementMisses; }
+    public synchronized double getStatementHitRate() {
+        long total = statementHits + statementMisses;
+        return total==0 ? 0.0 : (double) statementHits / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("ConnectionPool(size=%d, idle=%d, borrows=%d, waits=%d, meanWait=%.1fus, maxWait=%.3fms, statementHitRate=%.3f)",
+                size, idle.size(), borrows, waits, getMeanWaitMicros(), maxWaitedNanos / 1e6, getStatementHitRate());
+    }
+
+    @Override
+    public void close() throws SQLException {   // closes the idle connections now, borrowed ones when they are given back
+        List<Physical> connections;
+        synchronized (this) {
+            closed = true;
+            connections = new ArrayList<>(idle);
+            idle.clear();
+            size -= connections.size();
+            notifyAll();
+        }
+        SQLException error = null;
+        for (Physical physical : connections) {
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                if(error==null) error = e;
+                else error.addSuppressed(e);
+            }
+        }
+        if(error!=null) throw error;
+    }
+
+    private Physical borrow() throws SQLException {
+        long start = System.nanoTime();
+        boolean open = false;
+        synchronized (this) {
+            if(closed) throw new SQLException("connection pool is closed");
+            if(idle.isEmpty()) {
+                waits++;
+                long deadline = start + maxWaitNanos;
+                while (idle.isEmpty() && size >= maxSize && !closed) {
+                    long left = deadline - System.nanoTime();
+                    if(left <= 0) throw new SQLTimeoutException("no connection available within " + TimeUnit.NANOSECONDS.toMillis(maxWaitNanos) + "ms");
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(this, left);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("interrupted while waiting for a connection", e);
+                    }
+                }
+                if(closed) throw new SQLException("connection pool is closed");
+                if(idle.isEmpty()) {
+                    size++;     // reserve the slot, open outside the lock
+                    open = true;
+                }
+            }
+            if(!open) {
+                waited(start);
+                return idle.pop();
+            }
+        }
+        try {
+            Physical physical = new Physical(opener.open());
+            synchronized (this) {
+                opened++;
+                waited(start);
+            }
+            return physical;
+        } catch (SQLException | RuntimeException e) {
+            synchronized (this) {
+                size--;
+                notifyAll();
+            }
+            throw e;
+        }
+    }
+    private void waited(long start) {
+        borrows++;
+        long nanos = System.nanoTime() - start;
+        waitNanos += nanos;
+        if(nanos > maxWaitedNanos) maxWaitedNanos = nanos;
+    }
+
+    private void giveBack(Physical physical) {
+        boolean reuse = true;
+        try {
+            if(physical.connection.isClosed()) reuse = false;
+            else {
+                if(!physical.connection.getAutoCommit()) {
+                    physical.connection.rollback();     // what was not committed is not handed to the next borrower
+                    physical.connection.setAutoCommit(true);
+                }
+                physical.connection.clearWarnings();
+            }
+        } catch (SQLException e) {
+            reuse = false;
+        }
+        synchronized (this) {
+            if(reuse && !closed) {
+                idle.push(physical);
+                notifyAll();
+                return;
+            }
+            size--;
+            notifyAll();
+        }
+        try {
+            physical.close();
+        } catch (SQLException ignored) {
+            // broken anyway
+        }
+    }
+
+    // a connection of the pool with its statement cache
+    private final class Physical {
+
+        private final Connection connection;
+        private final LinkedHashMap<String, PreparedStatement> statements = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if(size() <= statementCacheSize) return false;
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+
+        private Physical(Connection connection) throws SQLException {
+            this.connection = connection;
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : initSql) statement.execute(sql);
+            } catch (SQLException e) {
+                closeQuietly(connection);
+                throw e;
+            }
+        }
+
+        private PreparedStatement checkout(String sql) throws SQLException {    // used by one borrower only
+            PreparedStatement statement = statements.remove(sql);
+            synchronized (ConnectionPool.this) {
+                if(statement!=null) statementHits++;
+                else statementMisses++;
+            }
+            return statement!=null ? statement : connection.prepareStatement(sql);
+        }
+        private void checkin(String sql, PreparedStatement statement) {
+            try {
+                if(statementCacheSize==0 || statement.isClosed() || statements.containsKey(sql)) {
+                    statement.close();
+                    return;
+                }
+                statement.clearParameters();
+                statement.clearBatch();
+                statement.setQueryTimeout(0);   // the next borrower starts from the defaults, not from the last one's limits
+                statement.setFetchSize(0);
+                statement.setMaxRows(0);
+                statements.put(sql, statement);
+            } catch (SQLException e) {
+                closeQuietly(statement);
+            }
+        }
+
+        private void close() throws SQLException {
+            for (Iterator<PreparedStatement> it = statements.values().iterator(); it.hasNext(); ) {
+                closeQuietly(it.next());
+                it.remove();
+            }
+            connection.close();
+        }
+    }
+
+    // what getConnection() hands out: the physical connection until close(), which also closes its statements
+    private final class Logical implements InvocationHandler {
+
+        private Physical physical;
+        private Connection proxy;
+        private final ArrayList<Statement> statements = new ArrayList<>();   // the plain ones, and the cached ones still out
+
+        private Logical(Physical physical) { this.physical = physical; }
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            this.proxy = (Connection) proxy;
+            switch (method.getName()) {
+                case "close":
+                    if(physical!=null) {
+                        for (Statement statement : new ArrayList<>(statements)) closeQuietly(statement);
+                        statements.clear();
+                        Physical physical = this.physical;
+                        this.physical = null;
+                        giveBack(physical);
+                    }
+                    return null;
+                case "isClosed": return physical==null;
+                case "equals": return proxy==args[0];
+                case "hashCode": return System.identityHashCode(proxy);
+                case "toString": return "Pooled(" + (physical==null ? "closed" : physical.connection) + ")";
+            }
+            if(physical==null) throw new SQLException("connection is closed");
+            if(method.getName().equals("prepareStatement") && isCacheable(args)) {
+                String sql = (String) args[0];
+                PreparedStatement statement = cached(sql, physical.checkout(sql));
+                statements.add(statement);
+                return statement;
+            }
+            Object result = ConnectionPool.invoke(physical.connection, method, args);
+            if(!(result instanceof Statement)) return result;
+            Statement statement = tracked((Statement) result, method.getReturnType());
+            statements.add(statement);
+            return statement;
+        }
+
+        private boolean isCacheable(Object[] args) {    // prepareStatement(sql) or a forward-only read-only one
+            if(args.length==1) return true;
+            return args.length==3 && (Integer) args[1]==ResultSet.TYPE_FORWARD_ONLY && (Integer) args[2]==ResultSet.CONCUR_READ_ONLY;
+        }
+
+        private Statement tracked(Statement statement, Class<?> type) {    // a plain one, out of the list once closed
+            Connection connection = proxy;
+            return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+                switch (method.getName()) {
+                    case "close":
+                        synchronized (Logical.this) {
+                            statements.remove(self);
+                        }
+                        statement.close();
+                        return null;
+                    case "getConnection": return connection;
+                    case "equals": return self==args[0];
+                    case "hashCode": return System.identityHashCode(self);
+                }
+                return ConnectionPool.invoke(statement, method, args);
+            });
+        }
+
+        private PreparedStatement cached(String sql, PreparedStatement statement) {
+            Physical owner = physical;
+            Connection connection = proxy;
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                    new InvocationHandler() {
+                        private volatile boolean closed;
+                        @Override
+                        public Object invoke(Object self, Method method, Object[] args) throws Throwable {
+                            switch (method.getName()) {
+                                case "close":
+                                    synchronized (Logical.this) {
+                                        if(!closed) {
+                                            closed = true;
+                                            statements.remove(self);
+                                            owner.checkin(sql, statement);
+                                        }
+                                    }
+                                    return null;
+                                case "isClosed": return closed || statement.isClosed();
+                                case "getConnection": return connection;
+                                case "equals": return self==args[0];
+                                case "hashCode": return System.identityHashCode(self);
+                            }
+                            if(closed) throw new SQLException("statement is closed");
+                            return ConnectionPool.invoke(statement, method, args);
+                        }
+                    });
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+            // evicted or broken, nothing to hand back
+        }
+    }
+
+    // DataSource boilerplate
+    @Override
+    public PrintWriter getLogWriter() { return null; }
+    @Override
+    public void setLogWriter(PrintWriter out) { }
+    @Override
+    public void setLoginTimeout(int seconds) { }
+    @Override
+    public int getLoginTimeout() { return 0; }
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException { throw new SQLFeatureNotSupportedException(); }
+    @Override
+    public <T> T unwrap(Class<T> type) throws SQLException {
+        if(type.isInstance(this)) return type.cast(this);
+        throw new SQLException("not a wrapper of " + type.getName());
+    }
+    @Override
+    public boolean isWrapperFor(Class<?> type) { return type.isInstance(this); }
+
+}
@@ -0,0 +1,213 @@
+package tk.kahsolt.sqlbuilder.jdbc;
+
+import tk.kahsolt.sqlbuilder.sql.*;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+// Group commit: any thread submits a unit of work, a single writer runs the units queued within one flush window
+// as one physical transaction, so N writers share one commit (one fsync on SQLite) instead of paying N.
+// Each unit runs under its own savepoint, a failing unit is rolled back alone and the others still commit.
+public class GroupCommitter implements AutoCloseable {
+
+    public interface Listener {
+        void onFlush(int units, int failed, long nanos);
+    }
+
+    private static final class Unit {
+        private final List<Prepared> statements;
+        private final Transaction transaction;  // folds the counts into one per block, null for one count per statement
+        private final CompletableFuture<int[]> future = new CompletableFuture<>();
+        private int[] updateCounts;
+        private Unit(List<Prepared> statements) { this(statements, null); }
+        private Unit(List<Prepared> statements, Transaction transaction) {
+            this.statements = statements;
+            this.transaction = transaction;
+        }
+    }
+
+    private static final Object[] NO_PARAMS = new Object[0];
+    private static final Unit POISON = new Unit(Collections.emptyList());
+
+    private final Connection connection;
+    private final BlockingQueue<Unit> queue = new LinkedBlockingQueue<>();
+
+    private int maxUnits = 256;             // units per physical transaction
+    private long flushNanos = TimeUnit.MILLISECONDS.toNanos(2);    // how long the first unit of a group waits for company
+    private Listener listener;
+    private RenderListener metrics;         // SQLBuilder.getRenderListener(), gets every statement
+
+    private Thread writer;
+    private volatile boolean closed;
+    private volatile long flushes;
+    private volatile long commits;
+
+    public GroupCommitter(Connection connection) { this.connection = connection; }
+
+    public GroupCommitter maxUnits(int maxUnits) { this.maxUnits = Math.max(1, maxUnits); return this; }
+    public GroupCommitter flushWindow(long time, TimeUnit unit) { this.flushNanos = unit.toNanos(Math.max(0, time)); return this; }
+    public GroupCommitter listener(Listener listener) { this.listener = listener; return this; }
+    public GroupCommitter metrics(RenderListener metrics) { this.metrics = metrics; return this; }
+
+    // the future completes with one update count per statement once the shared commit returned, or exceptionally;
+    // a Transaction gets one per block like Transaction.execute(), a block may hold several statements
+    public CompletableFuture<int[]> submit(Transaction transaction) {
+        ArrayList<Prepared> statements = new ArrayList<>();
+        for (String sql : transaction.getStatements()) statements.add(new Prepared(sql, NO_PARAMS));
+        return submit(new Unit(statements, transaction));
+    }
+    public CompletableFuture<int[]> submit(String sql) { return submit(Collections.singletonList(new Prepared(sql, NO_PARAMS))); }
+    public CompletableFuture<int[]> submit(Query query) {
+        Prepared prepared = query.prepare();
+        if(prepared==null) return failed(new IllegalArgumentException("query cannot be rendered"));
+        return submit(Collections.singletonList(prepared));
+    }
+    public CompletableFuture<int[]> submit(Prepared... statements) { return submit(Arrays.asList(statements)); }
+    public CompletableFuture<int[]> submit(List<Prepared> statements) { return submit(new Unit(statements)); }
+    private CompletableFuture<int[]> submit(Unit unit) {
+        if(closed) return failed(new IllegalStateException("group committer is closed"));
+        queue.add(unit);
+        ensureStarted();
+        if(closed && queue.remove(unit)) unit.future.completeExceptionally(new IllegalStateException("group committer is closed"));
+        return unit.future;
+    }
+
+    public long getFlushes() { return flushes; }
+    public long getCommits() { return commits; }
+    public int getPending() { return queue.size(); }
+
+    @Override
+    public void close() {   // commits what is queued, then stops the writer; interrupted, it stops waiting for it
+        Thread thread;
+        synchronized (this) {
+            if(closed) return;
+            closed = true;
+            thread = writer;
+        }
+        if(thread!=null) {
+            queue.add(POISON);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();     // the writer still flushes what was queued before POISON
+                return;
+            }
+        }
+        for (Unit unit; (unit = queue.poll())!=null; ) {
+            if(unit!=POISON) unit.future.completeExceptionally(new IllegalStateException("group committer is closed"));
+        }
+    }
+
+    private synchronized void ensureStarted() {
+        if(writer!=null || closed) return;
+        writer = new Thread(this::run, "sqlbuilder-group-commit");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private static CompletableFuture<int[]> failed(Throwable e) {
+        CompletableFuture<int[]> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    private void run() {
+        ArrayList<Unit> group = new ArrayList<>(maxUnits);
+        boolean stop = false;
+        while (!stop) {
+            try {
+                Unit first = queue.take();
+                if(first==POISON) break;
+                group.add(first);
+                long deadline = System.nanoTime() + flushNanos;
+                while (group.size() < maxUnits) {
+                    Unit unit = queue.poll(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if(unit==null) break;
+                    if(unit==POISON) {  // flush this group, then stop
+                        stop = true;
+                        break;
+                    }
+                    group.add(unit);
+                }
+                flush(group);
+            } catch (InterruptedException e) {
+                stop = true;
+            } finally {
+                for (Unit unit : group) if(!unit.future.isDone()) unit.future.completeExceptionally(new IllegalStateException("group committer stopped"));
+                group.clear();
+            }
+        }
+    }
+
+    private void flush(List<Unit> group) {
+        long start = System.nanoTime();
+        int failed = 0;
+        try {
+            boolean autoCommit = connection.getAutoCommit();
+            if(autoCommit) connection.setAutoCommit(false);
+            try {
+                ArrayList<Unit> done = new ArrayList<>(group.size());
+                for (Unit unit : group) {
+                    Savepoint savepoint = connection.setSavepoint();
+                    try {
+                        int[] counts = execute(unit.statements);
+                        unit.updateCounts = unit.transaction==null ? counts : unit.transaction.byBlock(counts);
+                        connection.releaseSavepoint(savepoint);
+                        done.add(unit);
+                    } catch (SQLException | RuntimeException e) {
+                        connection.rollback(savepoint);     // only this unit is undone
+                        try {
+                            connection.releaseSavepoint(savepoint);     // or one savepoint per failed unit piles up until commit
+                        } catch (SQLException suppressed) {
+                            e.addSuppressed(suppressed);
+                        }
+                        unit.future.completeExceptionally(e);
+                        failed++;
+                    }
+                }
+                connection.commit();
+                commits++;
+                for (Unit unit : done) unit.future.complete(unit.updateCounts);
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    connection.rollback();
+                } catch (SQLException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                for (Unit unit : group) unit.future.completeExceptionally(e);
+            } finally {
+                if(autoCommit) connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            for (Unit unit : group) unit.future.completeExceptionally(e);
+        }
+        flushes++;
+        if(listener!=null) listener.onFlush(group.size(), failed, System.nanoTime() - start);
+    }
+
+    private int[] execute(List<Prepared> statements) throws SQLException {
+        int[] updateCounts = new int[statements.size()];
+        for (int i = 0; i < updateCounts.length; i++) {
+            Prepared prepared = statements.get(i);
+            long start = System.nanoTime();
+            if(prepared.getParamCount()==0) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute(prepared.getSql());
+                    updateCounts[i] = statement.getUpdateCount();
+                }
+            } else {
+                try (PreparedStatement statement = prepared.prepare(connection)) {
+                    statement.execute();
+                    updateCounts[i] = statement.getUpdateCount();
+                }
+            }
+            if(metrics!=null) metrics.onExecute(Keyword.of(prepared.getSql()), prepared.getSql(), System.nanoTime() - start);
+        }
+        return updateCounts;
+    }
+
+}
@@ -0,0 +1,115 @@
+package tk.kahsolt.sqlbuilder.jdbc;
+
+import tk.kahsolt.sqlbuilder.sql.*;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+// Walks a SELECT page by page with Query.seek(): each page starts right after the last key of the previous one,
+// so the last page costs the same as the first. The orderBy() columns must be selected and unique together.
+public class KeysetPager implements Iterator<List<Object[]>> {
+
+    private final Connection connection;
+    private final Query query;          // a SELECT with orderBy(), owned by the pager while iterating
+    private final int pageSize;
+    private final List<String> keys;
+    private int[] keyIndexes;           // 0-based result columns of keys, resolved on the first page
+    private RenderListener metrics;     // SQLBuilder.getRenderListener(), gets every page query
+
+    private Object[] lastKey;
+    private List<Object[]> next;
+    private boolean done;
+    private long pages;
+    private long rows;
+
+    public KeysetPager(Connection connection, Query query, int pageSize) {
+        this.connection = connection;
+        this.query = query;
+        this.pageSize = Math.max(1, pageSize);
+        this.keys = query.getOrderColumns();
+        if(query.getKeyword()!=Keyword.SELECT || keys.isEmpty()) throw new IllegalArgumentException("need a SELECT with orderBy()");
+    }
+
+    public KeysetPager metrics(RenderListener metrics) { this.metrics = metrics; return this; }
+    public KeysetPager startAfter(Object... lastKey) {  // resume a previous walk
+        this.lastKey = lastKey.length==0 ? null : lastKey.clone();
+        return this;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if(next==null && !done) {
+            try {
+                next = fetch();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            if(next.isEmpty()) {
+                next = null;
+                done = true;
+            }
+        }
+        return next!=null;
+    }
+
+    @Override
+    public List<Object[]> next() {
+        if(!hasNext()) throw new NoSuchElementException();
+        List<Object[]> page = next;
+        next = null;
+        return page;
+    }
+
+    public Object[] getLastKey() { return lastKey==null ? null : lastKey.clone(); }     // persist it to resume later
+    public long getPages() { return pages; }
+    public long getRows() { return rows; }
+
+    private List<Object[]> fetch() throws SQLException {
+        Prepared prepared = query.seek(lastKey, true).limit(pageSize).prepare();     // keys read back from rows are always bound
+        ArrayList<Object[]> page = new ArrayList<>(pageSize);
+        long start = System.nanoTime();
+        try (PreparedStatement statement = prepared.prepare(connection)) {
+            statement.setFetchSize(pageSize);
+            try (ResultSet rs = statement.executeQuery()) {
+                int width = rs.getMetaData().getColumnCount();
+                if(keyIndexes==null) keyIndexes = resolveKeys(rs.getMetaData());
+                while (rs.next()) {
+                    Object[] row = new Object[width];
+                    for (int i = 0; i < width; i++) row[i] = rs.getObject(i + 1);
+                    page.add(row);
+                }
+            }
+        }
+        if(metrics!=null) metrics.onExecute(Keyword.SELECT, prepared.getSql(), System.nanoTime() - start);
+        if(!page.isEmpty()) {
+            Object[] last = page.get(page.size() - 1);
+            lastKey = new Object[keyIndexes.length];
+            for (int i = 0; i < keyIndexes.length; i++) lastKey[i] = last[keyIndexes[i]];
+            pages++;
+            rows += page.size();
+        }
+        if(page.size() < pageSize) done = true;     // a short page is the last one, spare the empty query
+        return page;
+    }
+
+    private int[] resolveKeys(ResultSetMetaData meta) throws SQLException {    // "User.id" matches the label "id"
+        int[] indexes = new int[keys.size()];
+        for (int k = 0; k < indexes.length; k++) {
+            String key = keys.get(k);
+            String name = key.substring(key.lastIndexOf('.') + 1);
+            indexes[k] = -1;
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                if(meta.getColumnLabel(i).equalsIgnoreCase(name)) {
+                    indexes[k] = i - 1;
+                    break;
+                }
+            }
+            if(indexes[k]==-1) throw new SQLException("key column " + key + " is not in the select list");
+        }
+        return indexes;
+    }
+
+}
@@ -0,0 +1,260 @@
+package tk.kahsolt.sqlbuilder.jdbc;
+
+import tk.kahsolt.sqlbuilder.sql.*;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// "column IN (...)" for value sets of any size, ANDed to the query's conditions like Query.Frozen.and().
+// Up to chunkSize values it is one bucketed '?' list. Beyond that SQLite binds the whole set as one JSON array
+// (json_each) and MySQL runs the query once per chunk, concatenating the results. Beyond tempTableThreshold,
+// or when the query sorts/groups/limits so chunks cannot be concatenated, the values go to a temporary table
+// with an index that the query semi-joins. Nulls and duplicates (1 and 1L count as one) are dropped first.
+public class LargeIn {
+
+    public enum Strategy {
+        IN_LIST,        // one statement, column IN (?, ?, ...)
+        CHUNKED,        // one statement per chunkSize values
+        JSON_EACH,      // SQLite, column IN (SELECT value FROM json_each(?)), a single bound array
+        TEMP_TABLE,     // column IN (SELECT v FROM temp table), loaded in batches
+    }
+
+    public static final class Plan {
+
+        private final Strategy strategy;
+        private final List<String> setup;       // TEMP_TABLE: create it
+        private final String load;              // TEMP_TABLE: INSERT of one value, batched
+        private final int loadCount;
+        private final List<Prepared> statements;
+        private final List<String> cleanup;     // TEMP_TABLE: drop it
+
+        private Plan(Strategy strategy, List<String> setup, String load, int loadCount, List<Prepared> statements, List<String> cleanup) {
+            this.strategy = strategy;
+            this.setup = setup;
+            this.load = load;
+            this.loadCount = loadCount;
+            this.statements = Collections.unmodifiableList(statements);
+            this.cleanup = cleanup;
+        }
+
+        public Strategy getStrategy() { return strategy; }
+        public List<String> getSetup() { return setup; }
+        public String getLoad() { return load; }
+        public int getLoadCount() { return loadCount; }
+        public List<Prepared> getStatements() { return statements; }
+        public List<String> getCleanup() { return cleanup; }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(strategy.name());
+            for (String sql : setup) sb.append("\n  ").append(sql);
+            if(load!=null) sb.append("\n  ").append(load).append(" x").append(loadCount);
+            for (Prepared prepared : statements) sb.append("\n  ").append(prepared.getSql());
+            for (String sql : cleanup) sb.append("\n  ").append(sql);
+            return sb.toString();
+        }
+    }
+
+    private static final AtomicLong TEMP_TABLES = new AtomicLong();
+    private static final int LOAD_BATCH = 1000;
+    private static final int MYSQL_KEY_CHARS = 191;     // 767 bytes of utf8mb4, the smallest InnoDB key prefix limit
+    private static final int MYSQL_VARCHAR_CHARS = 16383;   // 65535-byte row of utf8mb4
+
+    private final Query.Frozen query;
+    private final Keyword keyword;
+    private final Dialect dialect;
+    private final boolean splittable;
+    private final String column;
+    private final List<Object> values;
+
+    private Strategy strategy;              // null to choose by size and dialect
+    private int chunkSize;                  // '?' per statement, stay under SQLite's 999 bound variables with the query's own
+    private int tempTableThreshold;
+    private RenderListener metrics;         // SQLBuilder.getRenderListener(), gets every statement
+
+    public LargeIn(Query query, String column, Collection<?> values) {
+        this.query = query.freeze();
+        if(this.query==null) throw new IllegalArgumentException("query cannot be rendered");
+        this.keyword = query.getKeyword();
+        if(keyword!=Keyword.SELECT && keyword!=Keyword.UPDATE && keyword!=Keyword.DELETE) throw new IllegalArgumentException("need a SELECT, UPDATE or DELETE");
+        this.dialect = query.getDialect();
+        this.splittable = query.isSplittable();
+        this.column = column;
+        LinkedHashSet<Object> distinct = new LinkedHashSet<>(values.size() * 4 / 3 + 1);
+        for (Object value : values) {
+            if(value==null) continue;   // never equal to anything
+            distinct.add(value instanceof Integer || value instanceof Short || value instanceof Byte ? ((Number) value).longValue() : value);
+        }
+        this.values = new ArrayList<>(distinct);
+        this.chunkSize = dialect==Dialect.MYSQL ? 1000 : 500;
+        this.tempTableThreshold = dialect==Dialect.MYSQL ? 10_000 : 100_000;
+    }
+
+    public LargeIn strategy(Strategy strategy) { this.strategy = strategy; return this; }  // force one
+    public LargeIn chunkSize(int chunkSize) { this.chunkSize = Math.max(1, chunkSize); return this; }
+    public LargeIn tempTableThreshold(int size) { this.tempTableThreshold = Math.max(0, size); return this; }
+    public LargeIn metrics(RenderListener metrics) { this.metrics = metrics; return this; }
+
+    public int size() { return values.size(); }
+
+    public Strategy choose() {
+        if(strategy!=null) return strategy;
+        int n = values.size();
+        if(n <= chunkSize) return Strategy.IN_LIST;
+        if(n > tempTableThreshold) return Strategy.TEMP_TABLE;
+        if(dialect==Dialect.SQLITE) return Strategy.JSON_EACH;
+        return splittable ? Strategy.CHUNKED : Strategy.TEMP_TABLE;
+    }
+
+    public Plan plan() {
+        Strategy strategy = choose();
+        List<String> none = Collections.emptyList();
+        switch (strategy) {
+            case IN_LIST:
+                return new Plan(strategy, none, null, 0, Collections.singletonList(inList(values)), none);
+            case CHUNKED: {
+                if(!splittable) throw new IllegalStateException("a query with DISTINCT, GROUP BY, ORDER BY or LIMIT cannot be chunked");
+                ArrayList<Prepared> statements = new ArrayList<>(values.size() / chunkSize + 1);
+                for (int from = 0; from < values.size(); from += chunkSize) {
+                    statements.add(inList(values.subList(from, Math.min(values.size(), from + chunkSize))));
+                }
+                if(statements.isEmpty()) statements.add(inList(values));
+                return new Plan(strategy, none, null, 0, statements, none);
+            }
+            case JSON_EACH: {
+                if(dialect!=Dialect.SQLITE) throw new IllegalStateException("json_each() is SQLite only");
+                Prepared prepared = query.and(column + " IN (SELECT value FROM json_each(?))", json(values)).prepare();
+                return new Plan(strategy, none, null, 0, Collections.singletonList(prepared), none);
+            }
+            default: {
+                String table = "sqlbuilder_in_" + TEMP_TABLES.incrementAndGet();
+                boolean integral = isIntegral(values);
+                String create, drop;
+                if(dialect==Dialect.MYSQL) {
+                    create = "CREATE TEMPORARY TABLE " + table + "(" + (integral ? "v BIGINT PRIMARY KEY" : mysqlColumn(values)) + ")";
+                    drop = "DROP TEMPORARY TABLE IF EXISTS " + table;
+                } else {
+                    create = "CREATE TEMP TABLE " + table + "(v " + (integral ? "INTEGER" : "TEXT") + " PRIMARY KEY)";
+                    drop = "DROP TABLE IF EXISTS temp." + table;
+                }
+                Prepared prepared = query.and(column + " IN (SELECT v FROM " + table + ")").prepare();
+                return new Plan(strategy, Collections.singletonList(create), "INSERT INTO " + table + " VALUES(?)", values.size(),
+                        Collections.singletonList(prepared), Collections.singletonList(drop));
+            }
+        }
+    }
+
+    public List<Object[]> select(Connection connection) throws SQLException { return select(connection, RowStream.ARRAYS); }
+    public <T> List<T> select(Connection connection, RowStream.Binder<T> binder) throws SQLException {   // rows of all statements, in order
+        if(keyword!=Keyword.SELECT) throw new IllegalStateException("not a SELECT");
+        ArrayList<T> rows = new ArrayList<>();
+        run(connection, plan(), prepared -> {
+            try (RowStream.Cursor<T> cursor = new RowStream(connection).metrics(metrics).open(prepared, binder)) {
+                while (cursor.hasNext()) rows.add(cursor.next());
+            }
+        });
+        return rows;
+    }
+    public long update(Connection connection) throws SQLException {    // UPDATE/DELETE, the sum of the update counts
+        if(keyword==Keyword.SELECT) throw new IllegalStateException("not an UPDATE or DELETE");
+        long[] count = {0};
+        run(connection, plan(), prepared -> {
+            try (PreparedStatement statement = prepared.prepare(connection)) {
+                long start = System.nanoTime();
+                count[0] += statement.executeUpdate();
+                if(metrics!=null) metrics.onExecute(keyword, prepared.getSql(), System.nanoTime() - start);
+            }
+        });
+        return count[0];
+    }
+
+    private interface Step {
+        void run(Prepared prepared) throws SQLException;
+    }
+    private void run(Connection connection, Plan plan, Step step) throws SQLException {
+        try {
+            try (Statement statement = connection.createStatement()) {
+                for (String sql : plan.setup) statement.execute(sql);
+            }
+            if(plan.load!=null) load(connection, plan.load);
+            for (Prepared prepared : plan.statements) step.run(prepared);
+        } finally {
+            if(!plan.cleanup.isEmpty()) {
+                try (Statement statement = connection.createStatement()) {
+                    for (String sql : plan.cleanup) statement.execute(sql);
+                }
+            }
+        }
+    }
+    private void load(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            int pending = 0;
+            for (Object value : values) {
+                Prepared.bind(statement, 1, value);
+                statement.addBatch();
+                if(++pending==LOAD_BATCH) {
+                    statement.executeBatch();
+                    pending = 0;
+                }
+            }
+            if(pending!=0) statement.executeBatch();
+        }
+    }
+
+    private Prepared inList(List<Object> part) {   // padded to a power of two like Query.Condition.in(Collection)
+        if(part.isEmpty()) return query.and(column + " IN (NULL)").prepare();
+        int width = part.size() <= 1 ? 1 : Integer.highestOneBit(part.size() - 1) << 1;
+        Object[] params = new Object[width];
+        StringBuilder sb = new StringBuilder(column.length() + 8 + 3 * width).append(column).append(" IN (");
+        for (int i = 0; i < width; i++) {
+            if(i != 0) sb.append(", ");
+            sb.append('?');
+            params[i] = part.get(Math.min(i, part.size() - 1));
+        }
+        return query.and(sb.append(')').toString(), params).prepare();
+    }
+
+    // as wide as the longest value, so nothing is truncated; the key is not unique since values that differ
+    // in Java can still be equal under the column's collation ('a', 'A', 'a ')
+    private static String mysqlColumn(List<Object> values) {
+        int length = 1;
+        for (Object value : values) length = Math.max(length, value.toString().length());
+        String column = length <= MYSQL_VARCHAR_CHARS ? "v VARCHAR(" + length + ")" : "v TEXT";
+        return column + (length <= MYSQL_KEY_CHARS ? ", KEY(v)" : ", KEY(v(" + MYSQL_KEY_CHARS + "))");
+    }
+
+    private static boolean isIntegral(List<Object> values) {
+        for (Object value : values) {
+            if(!(value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)) return false;
+        }
+        return true;
+    }
+
+    private static String json(List<Object> values) {   // [1, 2, "a\"b"]
+        StringBuilder sb = new StringBuilder(values.size() * 8 + 2).append('[');
+        for (int i = 0; i < values.size(); i++) {
+            if(i != 0) sb.append(',');
+            Object value = values.get(i);
+            if(value instanceof Number) sb.append(value);
+            else if(value instanceof Boolean) sb.append((Boolean) value ? 1 : 0);
+            else {
+                String str = value.toString();
+                sb.append('"');
+                for (int j = 0; j < str.length(); j++) {
+                    char c = str.charAt(j);
+                    if(c == '"' || c == '\\') sb.append('\\').append(c);
+                    else if(c < ' ') sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+                }
+                sb.append('"');
+            }
+        }
+        return sb.append(']').toString();
+    }
+
+}
@@ -0,0 +1,203 @@
+package tk.kahsolt.sqlbuilder.jdbc;
+
+import tk.kahsolt.sqlbuilder.sql.*;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// The plan of a generated query from EXPLAIN QUERY PLAN (SQLite) or EXPLAIN (MySQL), with the steps that mean
+// "reads every row" flagged. assertUsesIndex() turns it into a test check against a scratch database.
+public class QueryPlan {
+
+    public enum Kind {
+        SCAN,           // full table scan
+        INDEX_SCAN,     // full scan of an index, e.g. to avoid a sort
+        SEARCH,         // index or primary key lookup
+        AUTOMATIC_INDEX,// SQLite built a throwaway index for this query: an index is missing
+        TEMP_BTREE,     // sort or grouping in a temp b-tree (SQLite) / filesort or temporary table (MySQL)
+        OTHER,          // constant rows, sub-query and compound bookkeeping
+    }
+
+    public static class Step {
+
+        private final Kind kind;
+        private final String table;
+        private final String index;
+        private final String detail;    // the raw plan line
+
+        Step(Kind kind, String table, String index, String detail) {
+            this.kind = kind;
+            this.table = table;
+            this.index = index;
+            this.detail = detail;
+        }
+
+        public Kind getKind() { return kind; }
+        public String getTable() { return table; }
+        public String getIndex() { return index; }
+        public String getDetail() { return detail; }
+
+        @Override
+        public String toString() { return kind + " " + detail; }
+    }
+
+    private final String sql;
+    private final List<Step> steps;
+
+    QueryPlan(String sql, List<Step> steps) {
+        this.sql = sql;
+        this.steps = Collections.unmodifiableList(steps);
+    }
+
+    // unbound '?' need a value each, a NULL would let the optimizer see an empty result and skip the tables
+    public static QueryPlan explain(Connection connection, Query query, Object... unbound) throws SQLException {
+        Prepared prepared = query.prepare();
+        if(prepared==null) throw new IllegalArgumentException("query cannot be rendered");
+        return explain(connection, query.getDialect(), prepared, unbound);
+    }
+    public static QueryPlan explain(Connection connection, Dialect dialect, String sql) throws SQLException {
+        return explain(connection, dialect, new Prepared(sql, new Object[0]));
+    }
+    public static QueryPlan explain(Connection connection, Dialect dialect, Prepared prepared, Object... unbound) throws SQLException {
+        String sql = prepared.getSql();
+        String explain = (dialect==Dialect.MYSQL ? "EXPLAIN " : "EXPLAIN QUERY PLAN ") + (sql.endsWith(";") ? sql.substring(0, sql.length() - 1) : sql);
+        ArrayList<Step> steps = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(explain)) {
+            prepared.bind(statement, unbound);      // throws unless there is one value per unbound '?'
+            try (ResultSet rs = statement.executeQuery()) {
+                if(dialect==Dialect.MYSQL) while (rs.next()) parseMysql(rs, steps);
+                else while (rs.next()) steps.add(parseSqlite(rs.getString("detail")));
+            }
+        }
+        return new QueryPlan(sql, steps);
+    }
+
+    // creates the tables, indexes and triggers of the definitions, e.g. on an in-memory SQLite for tests
+    public static void createSchema(Connection connection, Table... tables) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            for (Table table : tables) for (String sql : Script.split(table.end())) statement.execute(sql);
+        }
+    }
+
+    // no full scan, no automatic index, and no full index scan unless allowIndexScan: a covering index read
+    // from end to end (to skip a sort, or as a narrower table) still touches every row. The plan must read the
+    // tables of from(), a plan without them (e.g. MySQL's "Impossible WHERE") proves nothing.
+    // A query with unbound '?' is rejected, check explain(connection, query, values) instead.
+    public static void assertUsesIndex(Connection connection, Query query) throws SQLException { assertUsesIndex(connection, query, false); }
+    public static void assertUsesIndex(Connection connection, Query query, boolean allowIndexScan) throws SQLException {
+        QueryPlan plan = explain(connection, query);
+        assertReads(plan, query);
+        if(plan.hasFullScan() || plan.hasAutomaticIndex()) throw new AssertionError("query does not use an index:\n" + plan);
+        if(!allowIndexScan && plan.hasIndexScan()) throw new AssertionError("query scans a whole index:\n" + plan);
+    }
+    public static void assertUsesIndex(Connection connection, Query query, String index) throws SQLException { assertUsesIndex(connection, query, index, false); }
+    public static void assertUsesIndex(Connection connection, Query query, String index, boolean allowIndexScan) throws SQLException {
+        QueryPlan plan = explain(connection, query);
+        assertReads(plan, query);
+        if(!plan.usesIndex(index)) throw new AssertionError("query does not use index " + index + ":\n" + plan);
+        if(!allowIndexScan && !plan.searchesIndex(index)) throw new AssertionError("query scans the whole index " + index + ":\n" + plan);
+    }
+    public static void assertNoTempBTree(Connection connection, Query query) throws SQLException {    // ORDER BY/GROUP BY served by an index
+        QueryPlan plan = explain(connection, query);
+        if(plan.hasTempBTree()) throw new AssertionError("query sorts in a temp b-tree:\n" + plan);
+    }
+
+    private static void assertReads(QueryPlan plan, Query query) {
+        String tables = query.getTable();
+        if(tables==null) return;    // SELECT of a constant
+        for (String table : tables.split(",")) {
+            if(!plan.reads(table)) throw new AssertionError("query plan does not read " + table.trim() + ":\n" + plan);
+        }
+    }
+
+    public String getSql() { return sql; }
+    public List<Step> getSteps() { return steps; }
+    public boolean hasFullScan() { return has(Kind.SCAN); }
+    public boolean hasIndexScan() { return has(Kind.INDEX_SCAN); }
+    public boolean hasAutomaticIndex() { return has(Kind.AUTOMATIC_INDEX); }
+    public boolean hasTempBTree() { return has(Kind.TEMP_BTREE); }
+    public boolean usesIndex(String index) {
+        for (Step step : steps) if(step.index!=null && step.index.equalsIgnoreCase(index)) return true;
+        return false;
+    }
+    public boolean searchesIndex(String index) {    // a lookup or range on it, not a scan of all of it
+        for (Step step : steps) if(step.kind==Kind.SEARCH && step.index!=null && step.index.equalsIgnoreCase(index)) return true;
+        return false;
+    }
+    public boolean reads(String table) {    // a SCAN or SEARCH step on it, by name or alias: "User", "User u", "User AS u"
+        String[] names = table.trim().split("\\s+");
+        for (Step step : steps) {
+            if(step.table==null || step.kind==Kind.OTHER || step.kind==Kind.TEMP_BTREE) continue;
+            if(step.table.equalsIgnoreCase(names[0]) || step.table.equalsIgnoreCase(names[names.length - 1])) return true;
+        }
+        return false;
+    }
+    public List<String> getFullScans() {    // tables read row by row
+        ArrayList<String> tables = new ArrayList<>();
+        for (Step step : steps) if(step.kind==Kind.SCAN) tables.add(step.table);
+        return tables;
+    }
+
+    private boolean has(Kind kind) {
+        for (Step step : steps) if(step.kind==kind) return true;
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(sql);
+        for (Step step : steps) sb.append("\n  ").append(step);
+        return sb.toString();
+    }
+
+    // "SCAN TABLE User AS u", "SCAN u USING COVERING INDEX idx", "SEARCH User USING INDEX idx (age>?)",
+    // "SEARCH User USING INTEGER PRIMARY KEY (rowid=?)", "SEARCH t USING AUTOMATIC COVERING INDEX (x=?)",
+    // "USE TEMP B-TREE FOR ORDER BY"; 3.36.0 dropped the word TABLE
+    static Step parseSqlite(String detail) {
+        String[] words = detail.trim().split("\\s+");
+        if(detail.startsWith("USE TEMP B-TREE")) return new Step(Kind.TEMP_BTREE, null, null, detail);
+        if(words.length < 2 || !words[0].equals("SCAN") && !words[0].equals("SEARCH")) return new Step(Kind.OTHER, null, null, detail);
+        int at = 1;
+        if(words[at].equals("TABLE") && words.length > 2) at++;
+        String table = words[at];
+        if(table.equals("CONSTANT") || table.equals("SUBQUERY")) return new Step(Kind.OTHER, null, null, detail);
+        String index = null;
+        boolean automatic = false;
+        int using = detail.indexOf(" USING ");
+        if(using != -1) {
+            String rest = detail.substring(using + 7);
+            automatic = rest.startsWith("AUTOMATIC");
+            if(rest.contains("PRIMARY KEY")) index = "PRIMARY KEY";
+            else {
+                int name = rest.indexOf("INDEX ");
+                if(name != -1) {
+                    String[] tail = rest.substring(name + 6).trim().split("\\s+");
+                    if(tail.length!=0 && !tail[0].startsWith("(")) index = tail[0];
+                }
+            }
+        }
+        Kind kind;
+        if(automatic) kind = Kind.AUTOMATIC_INDEX;
+        else if(words[0].equals("SEARCH")) kind = Kind.SEARCH;
+        else kind = index!=null ? Kind.INDEX_SCAN : Kind.SCAN;
+        return new Step(kind, table, index, detail);
+    }
+
+    private static void parseMysql(ResultSet rs, List<Step> steps) throws SQLException {
+        String table = rs.getString("table");
+        String type = rs.getString("type");
+        String key = rs.getString("key");
+        String extra = rs.getString("Extra");
+        String detail = "table=" + table + " type=" + type + " key=" + key + " rows=" + rs.getString("rows") + (extra!=null ? " " + extra : "");
+        Kind kind;
+        if(type==null) kind = Kind.OTHER;
+        else if(type.equals("ALL")) kind = Kind.SCAN;
+        else if(type.equals("index")) kind = Kind.INDEX_SCAN;
+        else kind = Kind.SEARCH;    // const, eq_ref, ref, range, index_merge...
+        steps.add(new Step(kind, table, key, detail));
+        if(extra!=null && (extra.contains("Using temporary") || extra.contains("Using filesort"))) steps.add(new Step(Kind.TEMP_BTREE, table, null, extra));
+    }
+
+}
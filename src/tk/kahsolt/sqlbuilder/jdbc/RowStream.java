@@ -0,0 +1,193 @@
+package tk.kahsolt.sqlbuilder.jdbc;
+
+import tk.kahsolt.sqlbuilder.sql.*;
+
+import java.sql.*;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Runs a SELECT and hands its rows out one at a time instead of collecting them: the driver holds fetchSize()
+// rows at most and the consumer pulls the next batch only when it asks for more, which is the backpressure.
+// Column labels are resolved once per result set by a Binder, the Mapper it returns reads by index.
+// Close the Stream/Cursor (try-with-resources) when stopping early, cancel() also aborts a running query.
+public class RowStream {
+
+    public interface Mapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+    public interface Binder<T> {   // called once with the columns of the result, before the first row
+        Mapper<T> bind(Columns columns) throws SQLException;
+    }
+
+    public static final class Columns {
+
+        private final String[] labels;
+        private final HashMap<String, Integer> indexes;   // lowercase label -> 1-based index
+
+        private Columns(ResultSetMetaData meta) throws SQLException {
+            labels = new String[meta.getColumnCount()];
+            indexes = new HashMap<>(labels.length * 2);
+            for (int i = 0; i < labels.length; i++) {
+                labels[i] = meta.getColumnLabel(i + 1);
+                indexes.putIfAbsent(labels[i].toLowerCase(), i + 1);
+            }
+        }
+
+        public int count() { return labels.length; }
+        public String label(int index) { return labels[index - 1]; }
+        public int index(String label) throws SQLException {   // "User.id" matches the label "id"
+            Integer index = indexes.get(label.substring(label.lastIndexOf('.') + 1).toLowerCase());
+            if(index==null) throw new SQLException("column " + label + " is not in the select list");
+            return index;
+        }
+    }
+
+    public static final Binder<Object[]> ARRAYS = columns -> {
+        int width = columns.count();
+        return rs -> {
+            Object[] row = new Object[width];
+            for (int i = 0; i < width; i++) row[i] = rs.getObject(i + 1);
+            return row;
+        };
+    };
+    public static <T> Binder<T> column(String label, Class<T> type) {
+        return columns -> {
+            int index = columns.index(label);
+            return rs -> rs.getObject(index, type);
+        };
+    }
+
+    // An open result set. Closes itself after the last row, close() before that releases the cursor early.
+    public static final class Cursor<T> implements Iterator<T>, AutoCloseable {
+
+        private final Statement statement;
+        private final ResultSet rs;
+        private final Mapper<T> mapper;
+        private boolean fetched;    // rs is positioned on a row not handed out yet
+        private volatile boolean closed;
+        private long rows;
+
+        private Cursor(Statement statement, ResultSet rs, Mapper<T> mapper) {
+            this.statement = statement;
+            this.rs = rs;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if(!fetched && !closed) {
+                try {
+                    fetched = rs.next();
+                    if(!fetched) close();
+                } catch (SQLException e) {
+                    if(closed) return false;    // cancelled
+                    closeQuietly(e);
+                    throw new IllegalStateException(e);
+                }
+            }
+            return fetched;
+        }
+
+        @Override
+        public T next() {
+            if(!hasNext()) throw new NoSuchElementException();
+            fetched = false;
+            rows++;
+            try {
+                return mapper.map(rs);
+            } catch (SQLException e) {
+                closeQuietly(e);
+                throw new IllegalStateException(e);
+            }
+        }
+
+        public long getRows() { return rows; }
+        public boolean isClosed() { return closed; }
+
+        public void cancel() {  // from any thread: aborts the query on the server, then releases the cursor
+            try {
+                if(!closed) statement.cancel();
+            } catch (SQLException ignored) {
+                // not running any more, or not supported: closing is all we can do
+            }
+            closeQuietly(null);
+        }
+
+        @Override
+        public synchronized void close() throws SQLException {
+            if(closed) return;
+            closed = true;
+            fetched = false;
+            try {
+                rs.close();
+            } finally {
+                statement.close();
+            }
+        }
+
+        private void closeQuietly(Exception cause) {
+            try {
+                close();
+            } catch (SQLException e) {
+                if(cause!=null) cause.addSuppressed(e);
+            }
+        }
+    }
+
+    private final Connection connection;
+
+    private int fetchSize = 500;        // rows per round trip; MySQL Connector/J streams only with Integer.MIN_VALUE or useCursorFetch=true
+    private int queryTimeout;           // seconds, 0 for none
+    private RenderListener metrics;     // SQLBuilder.getRenderListener(), gets the executeQuery() time
+
+    public RowStream(Connection connection) { this.connection = connection; }
+
+    public RowStream fetchSize(int fetchSize) { this.fetchSize = fetchSize; return this; }
+    public RowStream queryTimeout(int seconds) { this.queryTimeout = Math.max(0, seconds); return this; }
+    public RowStream metrics(RenderListener metrics) { this.metrics = metrics; return this; }
+
+    public <T> Cursor<T> open(Query query, Binder<T> binder) throws SQLException {
+        if(query.getKeyword()!=Keyword.SELECT) throw new IllegalArgumentException("need a SELECT");
+        Prepared prepared = query.prepare();
+        if(prepared==null) throw new IllegalArgumentException("query cannot be rendered");
+        return open(prepared, binder);
+    }
+    public <T> Cursor<T> open(Prepared prepared, Binder<T> binder) throws SQLException { return open(prepared, binder, null); }
+    <T> Cursor<T> open(Prepared prepared, Binder<T> binder, Consumer<Statement> started) throws SQLException {   // started sees it before it runs
+        PreparedStatement statement = connection.prepareStatement(prepared.getSql(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        try {
+            if(started!=null) started.accept(statement);
+            statement.setFetchSize(fetchSize);
+            if(queryTimeout!=0) statement.setQueryTimeout(queryTimeout);
+            prepared.bind(statement);
+            long start = System.nanoTime();
+            ResultSet rs = statement.executeQuery();
+            if(metrics!=null) metrics.onExecute(Keyword.SELECT, prepared.getSql(), System.nanoTime() - start);
+            try {
+                return new Cursor<>(statement, rs, binder.bind(new Columns(rs.getMetaData())));
+            } catch (SQLException | RuntimeException e) {
+                rs.close();
+                throw e;
+            }
+        } catch (SQLException | RuntimeException e) {
+            statement.close();
+            throw e;
+        }
+    }
+
+    // a sequential, lazy Stream; close it (try-with-resources) unless it is consumed to the end
+    public <T> Stream<T> stream(Query query, Binder<T> binder) throws SQLException { return stream(open(query, binder)); }
+    public <T> Stream<T> stream(Prepared prepared, Binder<T> binder) throws SQLException { return stream(open(prepared, binder)); }
+
+    private static <T> Stream<T> stream(Cursor<T> cursor) {
+        Spliterator<T> spliterator = Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED);
+        return StreamSupport.stream(spliterator, false).onClose(() -> cursor.closeQuietly(null));
+    }
+
+}
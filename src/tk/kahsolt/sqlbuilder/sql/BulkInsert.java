@@ -0,0 +1,176 @@
+package tk.kahsolt.sqlbuilder.sql;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+public class BulkInsert {
+
+    // limits of the default server builds we target, see Dialect
+    public static final long SQLITE_MAX_SQL_LENGTH = 1000000;       // SQLITE_MAX_SQL_LENGTH
+    public static final int SQLITE_MAX_VARIABLE_NUMBER = 999;       // SQLITE_MAX_VARIABLE_NUMBER, 32766 since 3.32.0
+    public static final long MYSQL_MAX_ALLOWED_PACKET = 1048576;    // max_allowed_packet, 16M since mariadb 10.2.4
+    public static final int MYSQL_MAX_PREPARED_PARAMETERS = 65535;  // placeholders per prepared statement
+
+    private final Query query;      // an INSERT/REPLACE with table and columns set
+
+    private long maxBytes;          // utf-8 length of one statement, including the terminal ';'
+    private int maxParameters;      // bind variables of one statement, only placeholder rows count
+    private int maxRows = Integer.MAX_VALUE;
+
+    public BulkInsert(Query query) {
+        this.query = query;
+        switch (query.getDialect()) {
+            case MYSQL:
+                maxBytes = MYSQL_MAX_ALLOWED_PACKET;
+                maxParameters = MYSQL_MAX_PREPARED_PARAMETERS;
+                break;
+            case SQLITE:
+                maxBytes = SQLITE_MAX_SQL_LENGTH;
+                maxParameters = SQLITE_MAX_VARIABLE_NUMBER;
+                break;
+        }
+    }
+
+    public BulkInsert maxBytes(long maxBytes) { this.maxBytes = maxBytes; return this; }
+    public BulkInsert maxParameters(int maxParameters) { this.maxParameters = maxParameters; return this; }
+    public BulkInsert maxRows(int maxRows) { this.maxRows = maxRows; return this; }
+
+    // Literal rows: values are inlined like Query.values(Object...), statements are split by maxBytes/maxRows
+    public long write(Stream<Object[]> rows, Consumer<String> statements) { return write(rows.iterator(), statements); }
+    public long write(Iterator<Object[]> rows, Consumer<String> statements) {
+        String head = query.buildInsertHead() + " VALUES";
+        String tail = query.buildInsertTail() + ";";
+        long headBytes = utf8Length(head) + utf8Length(tail);
+        StringBuilder sb = new StringBuilder();
+        StringBuilder row = new StringBuilder();
+        long bytes = 0, count = 0;
+        int rowCount = 0;
+        while (rows.hasNext()) {
+            Object[] values = rows.next();
+            row.setLength(0);
+            row.append('(');
+            for (int i = 0; i < values.length; i++) {
+                if(i!=0) row.append(", ");
+                row.append(Query.convertValue(values[i], query.getDialect()));
+            }
+            row.append(')');
+            long rowBytes = utf8Length(row);
+            if(rowCount!=0 && (bytes + 2 + rowBytes > maxBytes || rowCount >= maxRows)) {
+                statements.accept(sb.append(tail).toString());
+                count++;
+                rowCount = 0;
+            }
+            if(rowCount==0) {
+                sb.setLength(0);
+                sb.append(head);
+                bytes = headBytes + rowBytes;
+            } else {
+                sb.append(", ");
+                bytes += 2 + rowBytes;
+            }
+            sb.append(row);
+            rowCount++;
+        }
+        if(rowCount!=0) {
+            statements.accept(sb.append(tail).toString());
+            count++;
+        }
+        return count;
+    }
+    public long write(Stream<Object[]> rows, Appendable out) throws IOException { return write(rows.iterator(), out); }
+    public long write(Iterator<Object[]> rows, Appendable out) throws IOException {    // one statement per line
+        try {
+            return write(rows, statement -> {
+                try {
+                    out.append(statement).append('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Placeholder rows: every value becomes a '?', statements are split by maxParameters/maxBytes/maxRows
+    public long writeParameterized(Stream<Object[]> rows, BiConsumer<String, Object[]> statements) { return writeParameterized(rows.iterator(), statements); }
+    public long writeParameterized(Iterator<Object[]> rows, BiConsumer<String, Object[]> statements) {
+        if(!rows.hasNext()) return 0;
+        Object[] values = rows.next();
+        int width = query.getColumnCount()!=0 ? query.getColumnCount() : values.length;
+        String head = query.buildInsertHead() + " VALUES";
+        String tail = query.buildInsertTail() + ";";
+        int chunk = chunkRows(utf8Length(head) + utf8Length(tail), width);
+        String fullSql = null;  // every full chunk shares the same text
+        Object[] params = new Object[chunk * width];
+        int rowCount = 0;
+        long count = 0;
+        while (true) {
+            if(values.length!=width) throw new IllegalArgumentException("row has " + values.length + " values, expected " + width);
+            System.arraycopy(values, 0, params, rowCount * width, width);
+            rowCount++;
+            boolean more = rows.hasNext();
+            if(rowCount==chunk || !more) {
+                String sql;
+                if(rowCount==chunk) {
+                    if(fullSql==null) fullSql = buildPlaceholders(head, rowCount, width, tail);
+                    sql = fullSql;
+                    statements.accept(sql, params);
+                    params = new Object[chunk * width];
+                } else {
+                    Object[] rest = new Object[rowCount * width];
+                    System.arraycopy(params, 0, rest, 0, rest.length);
+                    statements.accept(buildPlaceholders(head, rowCount, width, tail), rest);
+                }
+                count++;
+                rowCount = 0;
+            }
+            if(!more) break;
+            values = rows.next();
+        }
+        return count;
+    }
+
+    public long writePrepared(Stream<Object[]> rows, Consumer<Prepared> statements) { return writePrepared(rows.iterator(), statements); }
+    public long writePrepared(Iterator<Object[]> rows, Consumer<Prepared> statements) {
+        return writeParameterized(rows, (sql, params) -> statements.accept(new Prepared(sql, params)));
+    }
+
+    private int chunkRows(long headBytes, int width) {  // how many placeholder rows fit in one statement
+        long rowBytes = 2 + 3L * width;                 // ", (?, ?, ?)"
+        long byBytes = Math.max(1, (maxBytes - headBytes) / rowBytes);
+        long byParameters = width==0 ? Integer.MAX_VALUE : Math.max(1, maxParameters / width);
+        return (int) Math.min(Math.min(byBytes, byParameters), maxRows);
+    }
+    private static String buildPlaceholders(String head, int rows, int width, String tail) {
+        StringBuilder sb = new StringBuilder(head.length() + rows * (3 * width + 2) + tail.length());
+        sb.append(head);
+        for (int r = 0; r < rows; r++) {
+            if(r!=0) sb.append(", ");
+            sb.append('(');
+            for (int i = 0; i < width; i++) {
+                if(i!=0) sb.append(", ");
+                sb.append('?');
+            }
+            sb.append(')');
+        }
+        return sb.append(tail).toString();
+    }
+
+    private static long utf8Length(CharSequence str) {
+        long length = 0;
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if(c < 0x80) length++;
+            else if(c < 0x800) length += 2;
+            else if(Character.isHighSurrogate(c)) { length += 4; i++; }
+            else length += 3;
+        }
+        return length;
+    }
+
+}
@@ -0,0 +1,99 @@
+package tk.kahsolt.sqlbuilder.sql;
+
+import java.util.regex.Pattern;
+
+// The shape of a statement: literals become '?', IN lists and VALUES rows collapse to one, comments and
+// whitespace are normalized. "SELECT * FROM User WHERE id = 5;" and "SELECT *  FROM User WHERE id=7" share
+// "SELECT * FROM User WHERE id = ?" and its hash, so logs of inlined SQL can be aggregated.
+public final class Fingerprint {
+
+    private static final Pattern IN_LIST = Pattern.compile("IN \\((?:\\?, )*\\?\\)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ROWS = Pattern.compile("(\\((?:\\?, )*\\?\\))(?:, \\1)+");
+    private static final Pattern VALUES = Pattern.compile("\\bVALUES ?(\\((?:\\?, )*\\?\\))\\+?", Pattern.CASE_INSENSITIVE);   // one row or many
+
+    private Fingerprint() { }
+
+    public static long hash(String sql) { return hashOf(normalize(sql)); }
+    public static long hashOf(String normalized) {     // 64-bit FNV-1a
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < normalized.length(); i++) {
+            hash ^= normalized.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+    public static String hex(long hash) {
+        String hex = Long.toHexString(hash);
+        return "0000000000000000".substring(hex.length()) + hex;
+    }
+
+    public static String normalize(String sql) {
+        StringBuilder sb = new StringBuilder(sql.length());
+        int n = sql.length();
+        boolean space = false;  // whitespace pending before the next token
+        for (int i = 0; i < n; i++) {
+            char c = sql.charAt(i);
+            if(c <= ' ') {
+                space = true;
+                continue;
+            }
+            if(c == '-' && i + 1 < n && sql.charAt(i + 1) == '-') {     // -- comment
+                while (i < n && sql.charAt(i) != '\n') i++;
+                space = true;
+                continue;
+            }
+            if(c == '/' && i + 1 < n && sql.charAt(i + 1) == '*') {     // /* comment */
+                int close = sql.indexOf("*/", i + 2);
+                i = close == -1 ? n : close + 1;
+                space = true;
+                continue;
+            }
+            char last = sb.length() == 0 ? '(' : sb.charAt(sb.length() - 1);
+            if(space && last != '(' && last != ' ' && c != ')' && c != ',') sb.append(last = ' ');
+            space = false;
+            if(c == '\'' || (c == 'X' || c == 'x') && i + 1 < n && sql.charAt(i + 1) == '\'' && !isWord(last)) {   // 'text', X'blob'
+                int close = c == '\'' ? i : i + 1;
+                while (true) {
+                    close = sql.indexOf('\'', close + 1);
+                    if(close == -1 || close + 1 >= n || sql.charAt(close + 1) != '\'') break;
+                    close++;    // '' escape
+                }
+                i = close == -1 ? n : close;
+                sb.append('?');
+            } else if(c == '"' || c == '`') {      // quoted identifier, kept
+                int close = sql.indexOf(c, i + 1);
+                if(close == -1) close = n - 1;
+                sb.append(sql, i, close + 1);
+                i = close;
+            } else if(isDigit(c) && !isWord(last) || c == '.' && i + 1 < n && isDigit(sql.charAt(i + 1)) && !isWord(last)) {
+                while (i + 1 < n && (isWord(sql.charAt(i + 1)) || sql.charAt(i + 1) == '.'
+                        || (sql.charAt(i + 1) == '+' || sql.charAt(i + 1) == '-') && (sql.charAt(i) == 'e' || sql.charAt(i) == 'E'))) i++;
+                int len = sb.length();
+                if(len > 1 && sb.charAt(len - 1) == '-' && (sb.charAt(len - 2) == '('
+                        || sb.charAt(len - 2) == ' ' && len > 2 && "=<>,".indexOf(sb.charAt(len - 3)) != -1)) sb.setLength(len - 1);    // unary minus
+                sb.append('?');
+            } else if(c == '=' || c == '<' || c == '>' || c == '!') {     // "a=1" as "a = ?"
+                if(last != ' ' && last != '(') sb.append(' ');
+                sb.append(c);
+                while (i + 1 < n && "=<>".indexOf(sql.charAt(i + 1)) != -1) sb.append(sql.charAt(++i));
+                space = true;
+            } else if(c == ',') {
+                sb.append(", ");
+                space = false;
+                while (i + 1 < n && sql.charAt(i + 1) <= ' ') i++;
+            } else sb.append(c);
+        }
+        int to = sb.length();
+        while (to > 0 && (sb.charAt(to - 1) == ';' || sb.charAt(to - 1) == ' ')) to--;
+        sb.setLength(to);
+        String text = sb.toString();
+        if(text.indexOf('?') == -1) return text;
+        text = IN_LIST.matcher(text).replaceAll("IN (?+)");
+        text = ROWS.matcher(text).replaceAll("$1+");
+        return VALUES.matcher(text).replaceAll("VALUES $1+");
+    }
+
+    private static boolean isDigit(char c) { return c >= '0' && c <= '9'; }
+    private static boolean isWord(char c) { return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '@'; }
+
+}
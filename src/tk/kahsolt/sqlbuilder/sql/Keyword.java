@@ -1,12 +1,26 @@
 package tk.kahsolt.sqlbuilder.sql;
 
 public enum Keyword {
-    CREATE, DROP, ALTER, TRUNCATE,
+    CREATE, DROP, ALTER, TRUNCATE, INDEX,
     SELECT, JOIN, GROUP_BY, HAVING,
-    INSERT, REPLACE, VALUES,
+    INSERT, REPLACE, VALUES, ON_CONFLICT,
     UPDATE, SET,
     DELETE,
     WHERE, ORDER_BY, LIMIT,
     ALL, ANY, SOME,
-    DELIMITER
+    DELIMITER;
+
+    public static Keyword of(String sql) {  // statement keyword from the first word, null if it is none of ours
+        int from = 0, to;
+        while (from < sql.length() && !Character.isLetter(sql.charAt(from))) from++;
+        for (to = from; to < sql.length() && Character.isLetter(sql.charAt(to)); to++) ;
+        String word = sql.substring(from, to).toUpperCase();
+        switch (word) {
+            case "CREATE": case "DROP": case "ALTER": case "TRUNCATE":
+            case "SELECT": case "INSERT": case "REPLACE": case "UPDATE": case "DELETE":
+                return valueOf(word);
+            case "WITH": return SELECT;
+            default: return null;
+        }
+    }
 }
\ No newline at end of file
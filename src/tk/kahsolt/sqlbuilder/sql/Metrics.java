@@ -0,0 +1,162 @@
+package tk.kahsolt.sqlbuilder.sql;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters and histograms of render time per Keyword, statement length, template cache use and execution time.
+// Histograms have one bucket per power of two, so percentiles are upper bounds within a factor of 2.
+public class Metrics implements RenderListener, MetricsMXBean {
+
+    public static class Histogram {
+
+        private final AtomicLongArray buckets = new AtomicLongArray(64);    // bucket i counts values in [2^(i-1), 2^i)
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+
+        public void record(long value) {
+            if(value < 0) value = 0;
+            buckets.incrementAndGet(Math.min(63, 64 - Long.numberOfLeadingZeros(value)));
+            count.increment();
+            sum.add(value);
+        }
+
+        public long count() { return count.sum(); }
+        public long sum() { return sum.sum(); }
+        public double mean() {
+            long n = count.sum();
+            return n==0 ? 0.0 : (double) sum.sum() / n;
+        }
+        public long percentile(double p) {     // upper bound of the bucket holding the p-th value, 0 < p <= 100
+            long n = count.sum();
+            if(n==0) return 0;
+            long rank = (long) Math.ceil(n * p / 100.0), seen = 0;
+            for (int i = 0; i < 64; i++) {
+                seen += buckets.get(i);
+                if(seen >= rank) return i==0 ? 0 : i >= 63 ? Long.MAX_VALUE : (1L << i) - 1;
+            }
+            return Long.MAX_VALUE;
+        }
+        void reset() {
+            for (int i = 0; i < 64; i++) buckets.set(i, 0);
+            count.reset();
+            sum.reset();
+        }
+    }
+
+    public static final String OTHER = "OTHER";     // map key of the statements Keyword.of() does not recognize
+
+    private static final Keyword[] KEYWORDS = Keyword.values();
+
+    private final Histogram[] renders = new Histogram[KEYWORDS.length];     // nanos, by Keyword.ordinal()
+    private final Histogram[] executes = new Histogram[KEYWORDS.length];
+    private final Histogram otherExecutes = new Histogram();    // BEGIN, PRAGMA, SHOW, a whole Transaction...
+    private final Histogram lengths = new Histogram();
+    private final LongAdder failures = new LongAdder();
+    private volatile TemplateCache templateCache;
+    private ObjectName objectName;
+
+    public Metrics() {
+        for (int i = 0; i < KEYWORDS.length; i++) {
+            renders[i] = new Histogram();
+            executes[i] = new Histogram();
+        }
+    }
+
+    public Metrics templateCache(TemplateCache templateCache) { this.templateCache = templateCache; return this; }
+
+    @Override
+    public void onRender(Keyword keyword, String sql, long nanos) {
+        renders[keyword.ordinal()].record(nanos);
+        if(sql!=null) lengths.record(sql.length());
+        else failures.increment();
+    }
+    @Override
+    public void onExecute(Keyword keyword, String sql, long nanos) {
+        (keyword!=null ? executes[keyword.ordinal()] : otherExecutes).record(nanos);
+    }
+
+    public Histogram getRenderHistogram(Keyword keyword) { return renders[keyword.ordinal()]; }
+    public Histogram getExecuteHistogram(Keyword keyword) { return keyword!=null ? executes[keyword.ordinal()] : otherExecutes; }   // null for OTHER
+    public Histogram getLengthHistogram() { return lengths; }
+
+    // JMX
+    public synchronized ObjectName registerMBean(String name) throws JMException {
+        if(objectName!=null) return objectName;
+        ObjectName objectName = new ObjectName("tk.kahsolt.sqlbuilder:type=Metrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        this.objectName = objectName;
+        return objectName;
+    }
+    public synchronized void unregisterMBean() throws JMException {
+        if(objectName==null) return;
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        objectName = null;
+    }
+
+    @Override
+    public long getRenders() {
+        long n = 0;
+        for (Histogram histogram : renders) n += histogram.count();
+        return n;
+    }
+    @Override
+    public long getFailures() { return failures.sum(); }
+    @Override
+    public Map<String, Long> getRenderCounts() { return counts(renders, null); }
+    @Override
+    public Map<String, Double> getRenderMeanMicros() { return meanMicros(renders, null); }
+    @Override
+    public Map<String, Long> getRenderP99Nanos() { return p99(renders, null); }
+    @Override
+    public double getMeanLength() { return lengths.mean(); }
+    @Override
+    public long getP99Length() { return lengths.percentile(99); }
+    @Override
+    public long getTemplateCacheSize() { return templateCache==null ? 0 : templateCache.size(); }
+    @Override
+    public double getTemplateCacheHitRate() { return templateCache==null ? 0.0 : templateCache.hitRate(); }
+    @Override
+    public Map<String, Long> getExecuteCounts() { return counts(executes, otherExecutes); }
+    @Override
+    public Map<String, Double> getExecuteMeanMicros() { return meanMicros(executes, otherExecutes); }
+    @Override
+    public Map<String, Long> getExecuteP99Nanos() { return p99(executes, otherExecutes); }
+    @Override
+    public void reset() {
+        for (Histogram histogram : renders) histogram.reset();
+        for (Histogram histogram : executes) histogram.reset();
+        otherExecutes.reset();
+        lengths.reset();
+        failures.reset();
+    }
+
+    private static Map<String, Long> counts(Histogram[] histograms, Histogram other) {  // only the keywords seen so far
+        TreeMap<String, Long> map = new TreeMap<>();
+        for (int i = 0; i < histograms.length; i++) if(histograms[i].count()!=0) map.put(KEYWORDS[i].name(), histograms[i].count());
+        if(other!=null && other.count()!=0) map.put(OTHER, other.count());
+        return map;
+    }
+    private static Map<String, Double> meanMicros(Histogram[] histograms, Histogram other) {
+        TreeMap<String, Double> map = new TreeMap<>();
+        for (int i = 0; i < histograms.length; i++) if(histograms[i].count()!=0) map.put(KEYWORDS[i].name(), histograms[i].mean() / 1e3);
+        if(other!=null && other.count()!=0) map.put(OTHER, other.mean() / 1e3);
+        return map;
+    }
+    private static Map<String, Long> p99(Histogram[] histograms, Histogram other) {
+        TreeMap<String, Long> map = new TreeMap<>();
+        for (int i = 0; i < histograms.length; i++) if(histograms[i].count()!=0) map.put(KEYWORDS[i].name(), histograms[i].percentile(99));
+        if(other!=null && other.count()!=0) map.put(OTHER, other.percentile(99));
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Metrics(renders=%d, failures=%d, meanLength=%.1f, render p99 ns=%s, execute p99 ns=%s)",
+                getRenders(), getFailures(), getMeanLength(), getRenderP99Nanos(), getExecuteP99Nanos());
+    }
+
+}
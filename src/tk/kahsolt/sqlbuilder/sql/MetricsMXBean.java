@@ -0,0 +1,24 @@
+package tk.kahsolt.sqlbuilder.sql;
+
+import java.util.Map;
+
+public interface MetricsMXBean {    // JMX view of Metrics, keyed by Keyword name, Metrics.OTHER for unrecognized statements
+
+    long getRenders();
+    long getFailures();
+    Map<String, Long> getRenderCounts();
+    Map<String, Double> getRenderMeanMicros();
+    Map<String, Long> getRenderP99Nanos();
+    double getMeanLength();
+    long getP99Length();
+
+    long getTemplateCacheSize();
+    double getTemplateCacheHitRate();
+
+    Map<String, Long> getExecuteCounts();
+    Map<String, Double> getExecuteMeanMicros();
+    Map<String, Long> getExecuteP99Nanos();
+
+    void reset();
+
+}
@@ -0,0 +1,103 @@
+package tk.kahsolt.sqlbuilder.sql;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.Arrays;
+
+public class Prepared {
+
+    // value of a '?' written by a no-arg template method (eq(), values(), set(column)...), bound by the caller
+    public static final Object UNBOUND = new Object() {
+        @Override
+        public String toString() { return "?"; }
+    };
+
+    private final String sql;
+    private final Object[] params;  // one per '?' in sql, in order
+    private final int[] types;      // java.sql.Types of params
+
+    public Prepared(String sql, Object[] params) {
+        this.sql = sql;
+        this.params = params;
+        this.types = new int[params.length];
+        for (int i = 0; i < params.length; i++) types[i] = typeOf(params[i]);
+    }
+
+    public String getSql() { return sql; }
+    public Object[] getParams() { return params.clone(); }
+    public int[] getTypes() { return types.clone(); }
+    public int getParamCount() { return params.length; }
+    public int getUnboundCount() {
+        int count = 0;
+        for (Object param : params) if(param==UNBOUND) count++;
+        return count;
+    }
+
+    public PreparedStatement prepare(Connection connection) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql);
+        try {
+            bind(statement);
+        } catch (SQLException | RuntimeException e) {
+            statement.close();
+            throw e;
+        }
+        return statement;
+    }
+
+    public void bind(PreparedStatement statement) throws SQLException { bind(statement, new Object[0]); }
+    public void bind(PreparedStatement statement, Object... unbound) throws SQLException {  // fills UNBOUND slots from unbound, in order
+        int count = getUnboundCount();  // a slot left out would keep the value of the previous bind
+        if(unbound.length!=count) throw new IllegalArgumentException(unbound.length + " values for " + count + " unbound '?' in " + sql);
+        int next = 0;
+        for (int i = 0; i < params.length; i++) {
+            if(params[i]==UNBOUND) bind(statement, i + 1, unbound[next++]);
+            else bind(statement, i + 1, params[i], types[i]);
+        }
+    }
+
+    public static void bind(PreparedStatement statement, int index, Object value) throws SQLException {
+        bind(statement, index, value, typeOf(value));
+    }
+    private static void bind(PreparedStatement statement, int index, Object value, int type) throws SQLException {
+        switch (type) {
+            case Types.NULL: statement.setNull(index, Types.NULL); break;
+            case Types.INTEGER:
+                if(value instanceof Boolean) statement.setInt(index, (Boolean) value ? 1 : 0);   // like the inlined 1/0
+                else statement.setInt(index, ((Number) value).intValue());
+                break;
+            case Types.SMALLINT: statement.setShort(index, (Short) value); break;
+            case Types.TINYINT: statement.setByte(index, (Byte) value); break;
+            case Types.BIGINT: statement.setLong(index, (Long) value); break;
+            case Types.REAL: statement.setFloat(index, (Float) value); break;
+            case Types.DOUBLE: statement.setDouble(index, (Double) value); break;
+            case Types.DECIMAL: statement.setBigDecimal(index, (BigDecimal) value); break;
+            case Types.VARBINARY: statement.setBytes(index, (byte[]) value); break;
+            case Types.DATE: statement.setDate(index, (Date) value); break;
+            case Types.TIME: statement.setTime(index, (Time) value); break;
+            case Types.TIMESTAMP: statement.setTimestamp(index, (Timestamp) value); break;
+            case Types.VARCHAR: statement.setString(index, value.toString()); break;
+            default: statement.setObject(index, value);
+        }
+    }
+
+    public static int typeOf(Object value) {
+        if(value==null) return Types.NULL;
+        if(value instanceof Integer || value instanceof Boolean) return Types.INTEGER;
+        if(value instanceof Long) return Types.BIGINT;
+        if(value instanceof Short) return Types.SMALLINT;
+        if(value instanceof Byte) return Types.TINYINT;
+        if(value instanceof Double) return Types.DOUBLE;
+        if(value instanceof Float) return Types.REAL;
+        if(value instanceof BigDecimal) return Types.DECIMAL;
+        if(value instanceof Number) return Types.OTHER;
+        if(value instanceof byte[]) return Types.VARBINARY;
+        if(value instanceof Date) return Types.DATE;
+        if(value instanceof Time) return Types.TIME;
+        if(value instanceof Timestamp) return Types.TIMESTAMP;
+        return Types.VARCHAR;   // everything else is inlined as its quoted toString()
+    }
+
+    @Override
+    public String toString() { return sql + " " + Arrays.toString(params); }
+
+}
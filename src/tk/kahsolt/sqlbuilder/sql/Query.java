@@ -1,109 +1,270 @@
 package tk.kahsolt.sqlbuilder.sql;
 
+import java.io.IOException;
 import java.util.*;
 
 public class Query {
 
+    private static final Object[] UNBOUND_1 = {Prepared.UNBOUND};
+    private static final Object[] UNBOUND_2 = {Prepared.UNBOUND, Prepared.UNBOUND};
+
     public static class Condition {
 
         private Query query;    // save caller to chain the monad
 
+        private String logicOperator;   // WHERE, HAVING, AND, OR
         private String column;      // left operand (column name)
         private String sqlCondition;
+        private Object[] params;    // values of the '?' in sqlCondition, in order
 
         public Condition() { }
         public Condition(String column) { this.column = column; }
 
         public Query isnull() {
-            sqlCondition = String.format("%s IS NULL", column);
+            params = null;
+            sqlCondition = column + " IS NULL";
             return query;
         }
         public Query isnotnull() {
-            sqlCondition = String.format("%s IS NOT NULL", column);
+            params = null;
+            sqlCondition = column + " IS NOT NULL";
             return query;
         }
         public Query eq() {
-            sqlCondition = String.format("%s = ?", column);
+            params = UNBOUND_1;
+            sqlCondition = column + " = ?";
             return query;
         }
         public Query eq(Object value) {
-            sqlCondition = String.format("%s = %s", column, convertValue(value));
+            sqlCondition = column + " = " + bind(value);
+            return query;
+        }
+        public Query eq(long value) {
+            sqlCondition = column + " = " + bind(value);
+            return query;
+        }
+        public Query eq(double value) {
+            sqlCondition = column + " = " + bind(value);
             return query;
         }
         public Query ne() {
-            sqlCondition = String.format("%s <> ?", column);
+            params = UNBOUND_1;
+            sqlCondition = column + " <> ?";
             return query;
         }
         public Query ne(Object value) {
-            sqlCondition = String.format("%s <> %s", column, convertValue(value));
+            sqlCondition = column + " <> " + bind(value);
+            return query;
+        }
+        public Query ne(long value) {
+            sqlCondition = column + " <> " + bind(value);
+            return query;
+        }
+        public Query ne(double value) {
+            sqlCondition = column + " <> " + bind(value);
             return query;
         }
         public Query gt() {
-            sqlCondition = String.format("%s > ?", column);
+            params = UNBOUND_1;
+            sqlCondition = column + " > ?";
             return query;
         }
         public Query gt(Object value) {
-            sqlCondition = String.format("%s > %s", column, convertValue(value));
+            sqlCondition = column + " > " + bind(value);
+            return query;
+        }
+        public Query gt(long value) {
+            sqlCondition = column + " > " + bind(value);
+            return query;
+        }
+        public Query gt(double value) {
+            sqlCondition = column + " > " + bind(value);
             return query;
         }
         public Query ge() {
-            sqlCondition = String.format("%s >= ?", column);
+            params = UNBOUND_1;
+            sqlCondition = column + " >= ?";
             return query;
         }
         public Query ge(Object value) {
-            sqlCondition = String.format("%s >= %s", column, convertValue(value));
+            sqlCondition = column + " >= " + bind(value);
+            return query;
+        }
+        public Query ge(long value) {
+            sqlCondition = column + " >= " + bind(value);
+            return query;
+        }
+        public Query ge(double value) {
+            sqlCondition = column + " >= " + bind(value);
             return query;
         }
         public Query lt() {
-            sqlCondition = String.format("%s < ?", column);
+            params = UNBOUND_1;
+            sqlCondition = column + " < ?";
             return query;
         }
         public Query lt(Object value) {
-            sqlCondition = String.format("%s < %s", column, convertValue(value));
+            sqlCondition = column + " < " + bind(value);
+            return query;
+        }
+        public Query lt(long value) {
+            sqlCondition = column + " < " + bind(value);
+            return query;
+        }
+        public Query lt(double value) {
+            sqlCondition = column + " < " + bind(value);
             return query;
         }
         public Query le() {
-            sqlCondition = String.format("%s <= ?", column);
+            params = UNBOUND_1;
+            sqlCondition = column + " <= ?";
             return query;
         }
         public Query le(Object value) {
-            sqlCondition = String.format("%s <= %s", column, convertValue(value));
+            sqlCondition = column + " <= " + bind(value);
+            return query;
+        }
+        public Query le(long value) {
+            sqlCondition = column + " <= " + bind(value);
+            return query;
+        }
+        public Query le(double value) {
+            sqlCondition = column + " <= " + bind(value);
             return query;
         }
         public Query like() {
-            sqlCondition = String.format("%s LIKE ?", column);
+            params = UNBOUND_1;
+            sqlCondition = column + " LIKE ?";
             return query;
         }
         public Query like(String value) {
-            sqlCondition = String.format("%s LIKE '%%%s%%'", column, value);
+            if(isBinding()) {
+                params = new Object[]{"%" + value + "%"};
+                sqlCondition = column + " LIKE ?";
+            } else {
+                params = null;
+                sqlCondition = ValueEncoder.quote(new StringBuilder(column).append(" LIKE "), "%" + value + "%", dialect()).toString();
+            }
             return query;
         }
         public Query like(String value, boolean raw) {
-            if(raw) sqlCondition = String.format("%s LIKE '%s'", column, value);
-            else like(value);
+            if(!raw) like(value);
+            else if(isBinding()) {
+                params = new Object[]{value};
+                sqlCondition = column + " LIKE ?";
+            } else {
+                params = null;
+                sqlCondition = ValueEncoder.quote(new StringBuilder(column).append(" LIKE "), value, dialect()).toString();
+            }
             return query;
         }
         public Query between() {
-            sqlCondition = String.format("%s BETWEEN ? AND ?", column);
+            params = UNBOUND_2;
+            sqlCondition = column + " BETWEEN ? AND ?";
+            return query;
+        }
+        public Query between(long minValue, long maxValue) {
+            if(isBinding()) {
+                params = new Object[]{minValue, maxValue};
+                sqlCondition = column + " BETWEEN ? AND ?";
+            } else {
+                params = null;
+                sqlCondition = column + " BETWEEN " + minValue + " AND " + maxValue;
+            }
             return query;
         }
         public Query between(Object minValue, Object maxValue) {
-            sqlCondition = String.format("%s BETWEEN %s AND %s", column, minValue, maxValue);
+            if(isBinding()) {
+                params = new Object[]{minValue, maxValue};
+                sqlCondition = column + " BETWEEN ? AND ?";
+            } else {
+                params = null;
+                sqlCondition = column + " BETWEEN " + convertValue(minValue, dialect()) + " AND " + convertValue(maxValue, dialect());
+            }
             return query;
         }
 
-        public Query in(String subquery) {      // equivalent to '= ANY()'
-            String subq = convertValue(subquery);
-            sqlCondition = String.format("%s IN %s", column, subq);
+        public Query in(String subquery) {      // equivalent to '= ANY()'; SQL, "SELECT ..." or "(1, 2)", written as is
+            params = null;
+            sqlCondition = column + " IN " + subquery(subquery);
             return query;
         }
         public Query notin(String subquery) {   // equivalent to '<> ALL()'
-            String subq = convertValue(subquery);
-            sqlCondition = String.format("%s NOT IN %s", column, subq);
+            params = null;
+            sqlCondition = column + " NOT IN " + subquery(subquery);
+            return query;
+        }
+        public Query in(Query subquery) {
+            sqlCondition = column + " IN " + bind(subquery);
             return query;
         }
+        public Query notin(Query subquery) {
+            sqlCondition = column + " NOT IN " + bind(subquery);
+            return query;
+        }
+        public Query in(Collection<?> values) { return in("IN", values); }
+        public Query notin(Collection<?> values) { return in("NOT IN", values); }
 
-        public Condition setSqlCondition(String sqlCondition) { this.sqlCondition = sqlCondition; return this; }
+        // bound as '?' the list is padded to the next power of two with its last value, so 1..999 values make
+        // 11 statement shapes; the padding stops at the dialect's '?' limit, a longer list is not padded at all.
+        // An empty list is IN (NULL), nothing matches, and NOT IN matches everything
+        private Query in(String operator, Collection<?> values) {
+            if(values.isEmpty()) {
+                params = null;
+                sqlCondition = operator.equals("IN") ? column + " IN (NULL)" : "1 = 1";
+                return query;
+            }
+            Object[] list = values.toArray();
+            boolean binding = isBinding();
+            int width = binding ? bucket(list.length, dialect()) : list.length;
+            ArrayList<Object> bound = binding ? new ArrayList<>(width) : null;
+            StringBuilder sb = new StringBuilder(column.length() + 12 + 3 * width).append(column).append(' ').append(operator).append(" (");
+            for (int i = 0; i < width; i++) {
+                if(i != 0) sb.append(", ");
+                Object value = list[Math.min(i, list.length - 1)];
+                if(binding) sb.append(bindValue(value, true, bound, dialect()));
+                else ValueEncoder.encode(sb, value, dialect());
+            }
+            params = binding && !bound.isEmpty() ? bound.toArray() : null;
+            sqlCondition = sb.append(')').toString();
+            return query;
+        }
+        static int bucket(int size, Dialect dialect) {
+            int limit = dialect==Dialect.MYSQL ? BulkInsert.MYSQL_MAX_PREPARED_PARAMETERS : BulkInsert.SQLITE_MAX_VARIABLE_NUMBER;
+            if(size >= limit) return size;
+            return size <= 1 ? 1 : Math.min(Integer.highestOneBit(size - 1) << 1, limit);
+        }
+
+        public Condition setSqlCondition(String sqlCondition) { this.sqlCondition = sqlCondition; this.params = null; return this; }
+
+        private boolean isBinding() { return query!=null && query.parameterized; }
+        private Dialect dialect() { return query==null ? Dialect.SQLITE : query.dialect; }
+        private String bind(Object value) {     // '?' when the query binds parameters, the inlined literal otherwise
+            if(!isBinding() && !(value instanceof Query || value instanceof Frozen)) {
+                params = null;
+                return convertValue(value, dialect());
+            }
+            ArrayList<Object> bound = new ArrayList<>(1);
+            String operand = bindValue(value, isBinding(), bound, dialect());
+            params = bound.isEmpty() ? null : bound.toArray();
+            return operand;
+        }
+        private String bind(long value) {
+            if(isBinding()) {
+                params = new Object[]{value};
+                return "?";
+            }
+            params = null;
+            return Long.toString(value);
+        }
+        private String bind(double value) {
+            if(isBinding()) {
+                params = new Object[]{value};
+                return "?";
+            }
+            params = null;
+            return Double.toString(value);
+        }
     }
     public static class Joint {
 
@@ -121,16 +282,118 @@ public class Query {
             return on(localColumn, "id");
         }
         public Query on(String localColumn, String referredColumn) {
-            sqlJoint = String.format("%s JOIN %s ON %s = %s.%s", direction, table, localColumn, table, referredColumn);
+            sqlJoint = direction + " JOIN " + table + " ON " + localColumn + " = " + table + "." + referredColumn;
             return query;
         }
 
         public Query setSqlJoint(String sqlJoint) { this.sqlJoint = sqlJoint; return query; }
     }
+    public static final class Frozen {  // immutable snapshot of a built query, see freeze()
+
+        private static final class Predicate {  // persistent list, a derived query shares all the predicates before its own
+            private final Predicate previous;
+            private final String logicOperator;
+            private final String sqlCondition;
+            private final Object[] params;
+            private final int size;
+            private final boolean grouped;      // the predicates before this one are put in parentheses
+            private final boolean or;           // an OR outside of any parentheses so far
+
+            private Predicate(Predicate previous, String logicOperator, String sqlCondition, Object[] params, boolean grouped) {
+                this.previous = previous;
+                this.logicOperator = previous==null ? "WHERE" : logicOperator;
+                this.sqlCondition = sqlCondition;
+                this.params = params;
+                this.size = previous==null ? 1 : previous.size + 1;
+                this.grouped = previous!=null && grouped;
+                this.or = "OR".equals(this.logicOperator) || previous!=null && !this.grouped && previous.or;
+            }
+        }
+
+        private final Keyword keyword;
+        private final Keyword refiner;
+        private final String head;          // "SELECT ... FROM ... JOIN ...", "UPDATE ... SET ...", "DELETE FROM ..." or "INSERT ... VALUES ..."
+        private final Object[] headParams;
+        private final Predicate wheres;
+        private final String tail;          // " GROUP BY ... HAVING ... ORDER BY ..."
+        private final Object[] tailParams;
+        private final Long[] limits;
+
+        private final String sql;           // rendered once, every end() shares it
+        private final Object[] params;
+
+        private Frozen(Keyword keyword, Keyword refiner, String head, Object[] headParams, Predicate wheres,
+                       String tail, Object[] tailParams, Long[] limits) {
+            this.keyword = keyword;
+            this.refiner = refiner;
+            this.head = head;
+            this.headParams = headParams;
+            this.wheres = wheres;
+            this.tail = tail;
+            this.tailParams = tailParams;
+            this.limits = limits;
 
+            Predicate[] predicates = new Predicate[wheres==null ? 0 : wheres.size];
+            for (Predicate p = wheres; p!=null; p = p.previous) predicates[p.size - 1] = p;
+            int length = head.length() + tail.length() + 48;
+            for (Predicate p : predicates) length += p.sqlCondition.length() + 7;
+            StringBuilder sb = new StringBuilder(length);
+            ArrayList<Object> params = new ArrayList<>(headParams.length + tailParams.length);
+            if(refiner!=null) sb.append(refiner.name()).append('(');
+            sb.append(head);
+            Collections.addAll(params, headParams);
+            for (int i = 0; i < predicates.length; i++) {
+                Predicate p = predicates[i];
+                if(p.grouped) sb.append(')');
+                sb.append(' ').append(p.logicOperator).append(' ');
+                if(i==0) for (Predicate q : predicates) if(q.grouped) sb.append('(');
+                sb.append(p.sqlCondition);
+                if(p.params!=null) Collections.addAll(params, p.params);
+            }
+            sb.append(tail);
+            Collections.addAll(params, tailParams);
+            if(limits!=null) {
+                sb.append(" LIMIT ").append(limits[0].longValue());
+                if(limits.length!=1) sb.append(", ").append(limits[1].longValue());
+            }
+            sb.append(refiner!=null ? ')' : ';');
+            this.sql = sb.toString();
+            this.params = params.toArray();
+        }
+
+        public String end() { return sql; }
+        public Appendable end(Appendable out) throws IOException { return out.append(sql); }
+        public Prepared prepare() { return new Prepared(sql, params.clone()); }
+
+        // copy-on-write derivations, the receiver is left untouched
+        public Frozen limit(long count) {
+            if(keyword != Keyword.SELECT) return null;
+            return new Frozen(keyword, refiner, head, headParams, wheres, tail, tailParams, new Long[]{count});
+        }
+        public Frozen limit(long base, long count) {
+            if(keyword != Keyword.SELECT) return null;
+            return new Frozen(keyword, refiner, head, headParams, wheres, tail, tailParams, new Long[]{base, count});
+        }
+        public Frozen and(Condition condition) { return derive("AND", condition.sqlCondition, condition.params); }
+        public Frozen or(Condition condition) { return derive("OR", condition.sqlCondition, condition.params); }
+        public Frozen and(String sqlCondition, Object... params) { return derive("AND", sqlCondition, params.clone()); }  // "age > ?", 18
+        public Frozen or(String sqlCondition, Object... params) { return derive("OR", sqlCondition, params.clone()); }
+        private Frozen derive(String logicOperator, String sqlCondition, Object[] params) {
+            if(keyword==Keyword.INSERT || keyword==Keyword.REPLACE || sqlCondition==null) return null;
+            boolean grouped = logicOperator.equals("AND") && wheres!=null && wheres.or;    // "a OR b" AND c => "(a OR b) AND c"
+            Predicate predicate = new Predicate(wheres, logicOperator, sqlCondition, params==null || params.length==0 ? null : params, grouped);
+            return new Frozen(keyword, refiner, head, headParams, predicate, tail, tailParams, limits);
+        }
+
+        public Keyword getKeyword() { return keyword; }
+
+        @Override
+        public String toString() { return sql; }
+    }
+
+    private Dialect dialect = Dialect.SQLITE;
     private Keyword keyword = Keyword.SELECT;
     private boolean conditionForWhere = true;   // true for WHERE, false for HAVING; and()/or() use this to judge which clause it belongs to
-    private StringBuilder sqlQuery;  // cache the build result, maybe useful for recall
 
     private String table;                                   // ALL                          ; "User"
     private String tables;                                  // SELECT (Cartesian product)   ; "Author, Book"
@@ -138,15 +401,25 @@ public class Query {
     private String columns;                                 // SELECT, INSERT               ; "name, age"
     private int columnCount = 0;                            // INSERT
     private ArrayList<String> values;                       // INSERT                       ; ["'kahsolt', 13, NULL"]
+    private ArrayList<Object[]> valueParams;                // INSERT                       ; [null] or [["kahsolt", 13, null]]
     private LinkedHashMap<String, String> sets;             // UPDATE                       ; ["username", "'1379'"]
-    private LinkedHashMap<String, Condition> wheres;        // SELECT, UPDATE, DELETE       ; ["AND", "age <= 13"]
+    private String[] conflicts;                             // INSERT(upsert)               ; ["id"] or [] for any unique key
+    private String[] upserts;                               // INSERT(upsert)               ; ["username", "age"] or [] for DO NOTHING
+    private HashMap<String, Object[]> setParams;            // UPDATE                       ; ["username", ["1379"]] for sets with "?"
+    private String[] timestamps;                            // UPDATE, INSERT(upsert)       ; ["update_time"] set to CURRENT_TIMESTAMP unless set()
+    private ArrayList<Condition> wheres;                    // SELECT, UPDATE, DELETE       ; ["WHERE age <= 13", "AND ..."]
     private ArrayList<Joint> joins;                         // SELECT                       ; ["User.id", "Book.author"]
     private String groups;                                  // SELECT                       ; "uid, city"
-    private LinkedHashMap<String, Condition> havings;       // SELECT                       ; ["OR", "AVERAGE(price) <= 13"]
+    private ArrayList<Condition> havings;                   // SELECT                       ; ["HAVING ...", "OR AVERAGE(price) <= 13"]
     private LinkedHashMap<String, Boolean> orders;          // SELECT                       ; ["update_time", 1]
     private Long[] limits;                                  // SELECT                       ; [25] or [100, 1000]
+    private Condition seek;                                 // SELECT(keyset)               ; "(year, id) < (2018, 1379)"
     private Keyword refiner;                                // SELECT(sub-query)
 
+    private TemplateCache templateCache;                    // shared across queries of the SQLBuilder, parameterized only, optional
+    private RenderListener renderListener;                  // metrics of the SQLBuilder, optional
+    private boolean parameterized = false;                  // bind values as '?' + params instead of inlining them
+
     public Query() { }
     public Query(String table) { this.table = table; }
 
@@ -189,11 +462,12 @@ public class Query {
     public Condition having(String columnAggregation) {
         if(keyword != Keyword.SELECT) return null;
 
-        this.havings = new LinkedHashMap<>();
+        this.havings = new ArrayList<>();
         Condition condition = new Condition(columnAggregation);
         condition.query = this;
         conditionForWhere = false;
-        havings.put("HAVING", condition);
+        condition.logicOperator = "HAVING";
+        havings.add(condition);
         return condition;
     }
     public Query orderBy(String column, boolean reverse) {
@@ -225,6 +499,47 @@ public class Query {
         return this;
     }
 
+    // keyset pagination: the rows after lastKey in orderBy() order, the index seeks there instead of skipping an OFFSET
+    public Query seek(Object... lastKey) { return seek(lastKey, parameterized); }   // one value per orderBy() column, none for the first page; keys must be NOT NULL
+    public Query seek(Object[] lastKey, boolean bind) {     // bind: '?' even when not parameterized, for keys read back from rows
+        if(keyword != Keyword.SELECT || orders==null) return null;
+        if(lastKey==null || lastKey.length==0) {
+            seek = null;
+            return this;
+        }
+        if(lastKey.length != orders.size()) return null;
+
+        String[] columns = orders.keySet().toArray(new String[0]);
+        Boolean[] reverses = orders.values().toArray(new Boolean[0]);
+        boolean mixed = false;
+        for (Boolean reverse : reverses) if(reverse != reverses[0]) mixed = true;
+        ArrayList<Object> params = new ArrayList<>(bind ? 2 * lastKey.length : 0);
+        StringBuilder sb = new StringBuilder(16 * columns.length);
+        if(columns.length==1) {
+            sb.append(columns[0]).append(reverses[0] ? " < " : " > ").append(bindValue(lastKey[0], bind, params, dialect));
+        } else if(!mixed) {     // row value comparison, SQLite 3.15.0+
+            sb.append('(').append(String.join(", ", columns)).append(reverses[0] ? ") < (" : ") > (");
+            for (int i = 0; i < lastKey.length; i++) {
+                if(i!=0) sb.append(", ");
+                sb.append(bindValue(lastKey[i], bind, params, dialect));
+            }
+            sb.append(')');
+        } else {                // (k1 > ? OR k1 = ? AND k2 < ? OR ...), each column in its own direction
+            sb.append('(');
+            for (int i = 0; i < columns.length; i++) {
+                if(i!=0) sb.append(" OR ");
+                for (int j = 0; j < i; j++) sb.append(columns[j]).append(" = ").append(bindValue(lastKey[j], bind, params, dialect)).append(" AND ");
+                sb.append(columns[i]).append(reverses[i] ? " < " : " > ").append(bindValue(lastKey[i], bind, params, dialect));
+            }
+            sb.append(')');
+        }
+        seek = new Condition();
+        seek.logicOperator = "AND";
+        seek.sqlCondition = sb.toString();
+        seek.params = params.isEmpty() ? null : params.toArray();
+        return this;
+    }
+
     public Query into() {
         if(keyword!=Keyword.INSERT && keyword!=Keyword.REPLACE || this.columns!=null) return null;
 
@@ -240,73 +555,158 @@ public class Query {
     public Query defaultValues() {
         if(keyword != Keyword.INSERT) return null;
         this.values = null; // use INSERT Table() DEFAULT VALUES;
+        this.valueParams = null;
         return this;
     }
     public Query values() {
         if(keyword!=Keyword.INSERT && keyword!=Keyword.REPLACE) return null;
 
-        ArrayList<String> strVals = new ArrayList<>();
-        for (int i = 0; i < columnCount; i++) strVals.add("?");
-        if(this.values==null) this.values = new ArrayList<>();
-        this.values.add(String.join(", ", strVals));
+        StringBuilder row = new StringBuilder(columnCount * 3);
+        Object[] params = new Object[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            if(i!=0) row.append(", ");
+            row.append('?');
+            params[i] = Prepared.UNBOUND;
+        }
+        addValues(row.toString(), params);
         return this;
     }
+    public BulkInsert bulk() {  // stream rows as a sequence of bounded multi-row INSERTs instead of values()
+        if(keyword!=Keyword.INSERT && keyword!=Keyword.REPLACE || table==null) return null;
+
+        return new BulkInsert(this);
+    }
     public Query values(Object... values) {
         if(keyword!=Keyword.INSERT && keyword!=Keyword.REPLACE) return null;
 
         if(values.length!=0) {
-            if(this.values==null) this.values = new ArrayList<>();
-            ArrayList<String> strVals = new ArrayList<>();
-            for (Object value : values) {
-                strVals.add(convertValue(value));
+            StringBuilder row = new StringBuilder(values.length * 8);
+            ArrayList<Object> params = new ArrayList<>(parameterized ? values.length : 0);
+            for (int i = 0; i < values.length; i++) {
+                if(i!=0) row.append(", ");
+                row.append(bindValue(values[i], parameterized, params, dialect));
             }
-            this.values.add(String.join(", ", strVals));
+            addValues(row.toString(), params.isEmpty() ? null : params.toArray());
         }
         return this;
     }
+    public Query values(long[] values) {    // not varargs on purpose, values(1, 2) stays values(Object...)
+        if(keyword!=Keyword.INSERT && keyword!=Keyword.REPLACE) return null;
+
+        if(values.length!=0) {
+            StringBuilder row = new StringBuilder(values.length * 8);
+            Object[] params = parameterized ? new Object[values.length] : null;
+            for (int i = 0; i < values.length; i++) {
+                if(i!=0) row.append(", ");
+                if(parameterized) {
+                    params[i] = values[i];
+                    row.append('?');
+                } else row.append(values[i]);
+            }
+            addValues(row.toString(), params);
+        }
+        return this;
+    }
+    private void addValues(String row, Object[] params) {
+        if(this.values==null) {
+            this.values = new ArrayList<>();
+            this.valueParams = new ArrayList<>();
+        }
+        this.values.add(row);
+        this.valueParams.add(params);
+    }
+
+    // upsert: unlike REPLACE the existing row is updated in place, no delete triggers, no new autoincrement id
+    public Query onConflict(String... keys) {   // the unique/primary key columns, ignored by MySQL which checks them all
+        if(keyword != Keyword.INSERT) return null;
+
+        this.conflicts = keys.clone();
+        return this;
+    }
+    public Query doUpdate(String... columns) {  // no columns for every inserted column but the conflict keys
+        if(conflicts==null) return null;
+
+        if(columns.length==0) {
+            if(this.columns==null) return null;
+            List<String> keys = Arrays.asList(conflicts);
+            ArrayList<String> updates = new ArrayList<>();
+            for (String column : this.columns.split(", ")) if(!keys.contains(column)) updates.add(column);
+            if(updates.isEmpty()) return null;
+            columns = updates.toArray(new String[0]);
+        }
+        this.upserts = columns.clone();
+        return this;
+    }
+    public Query doNothing() {
+        if(conflicts==null) return null;
+        if(dialect==Dialect.MYSQL && conflicts.length==0 && this.columns==null) return null;   // needs a column for 'k = k'
+
+        this.upserts = new String[0];
+        return this;
+    }
 
     public Query set(String column) {
         if(keyword != Keyword.UPDATE) return null;
 
-        if(sets==null) sets = new LinkedHashMap<>();
-        sets.put(column, "?");
-        return this;
+        return putSet(column, "?", UNBOUND_1);
     }
     public Query set(String column, Object value) {
         if(keyword != Keyword.UPDATE) return null;
 
+        ArrayList<Object> params = new ArrayList<>(1);
+        return putSet(column, bindValue(value, parameterized, params, dialect), params.isEmpty() ? null : params.toArray());
+    }
+    public Query set(String column, long value) {
+        if(keyword != Keyword.UPDATE) return null;
+
+        if(parameterized) return putSet(column, "?", new Object[]{value});
+        return putSet(column, Long.toString(value), null);
+    }
+    public Query set(String column, double value) {
+        if(keyword != Keyword.UPDATE) return null;
+
+        if(parameterized) return putSet(column, "?", new Object[]{value});
+        return putSet(column, Double.toString(value), null);
+    }
+    private Query putSet(String column, String value, Object[] params) {
         if(sets==null) sets = new LinkedHashMap<>();
-        sets.put(column, convertValue(value));
+        if(setParams==null) setParams = new HashMap<>();
+        sets.put(column, value);
+        if(params!=null) setParams.put(column, params);
+        else setParams.remove(column);
         return this;
     }
 
     public Query where(Condition condition) {
         if(keyword == Keyword.INSERT) return null;
 
-        this.wheres = new LinkedHashMap<>();
+        this.wheres = new ArrayList<>();
         condition.query = this;
         conditionForWhere = true;
-        wheres.put("WHERE", condition);
+        condition.logicOperator = "WHERE";
+        wheres.add(condition);
         return this;
     }
     public Condition where(String column) {
         if(keyword == Keyword.INSERT) return null;
 
-        this.wheres = new LinkedHashMap<>();
+        this.wheres = new ArrayList<>();
         Condition condition = new Condition(column);
         condition.query = this;
         conditionForWhere = true;
-        wheres.put("WHERE", condition);
+        condition.logicOperator = "WHERE";
+        wheres.add(condition);
         return condition;
     }
     public Condition where(String... columns) { // for 'in' sub-query
         if(keyword == Keyword.INSERT) return null;
 
-        this.wheres = new LinkedHashMap<>();
-        Condition condition = new Condition(String.format("(%s)", String.join(", ", columns)));
+        this.wheres = new ArrayList<>();
+        Condition condition = new Condition("(" + String.join(", ", columns) + ")");
         condition.query = this;
         conditionForWhere = true;
-        wheres.put("WHERE", condition);
+        condition.logicOperator = "WHERE";
+        wheres.add(condition);
         return condition;
     }
     public Condition and(String column) {
@@ -314,8 +714,9 @@ public class Query {
 
         Condition condition = new Condition(column);
         condition.query = this;
-        if(conditionForWhere) wheres.put("AND", condition);
-        else havings.put("AND", condition);
+        condition.logicOperator = "AND";
+        if(conditionForWhere) wheres.add(condition);
+        else havings.add(condition);
         return condition;
     }
     public Condition or(String column) {
@@ -323,8 +724,9 @@ public class Query {
 
         Condition condition = new Condition(column);
         condition.query = this;
-        if(conditionForWhere) wheres.put("OR", condition);
-        else havings.put("OR", condition);
+        condition.logicOperator = "OR";
+        if(conditionForWhere) wheres.add(condition);
+        else havings.add(condition);
         return condition;
     }
 
@@ -342,204 +744,384 @@ public class Query {
     }
 
     public String end() {
-        sqlQuery = new StringBuilder();
+        if(renderListener==null) return lookup();
+
+        long start = System.nanoTime();
+        String sql = lookup();
+        renderListener.onRender(keyword, sql, System.nanoTime() - start);
+        return sql;
+    }
+    private String lookup() {   // with values as '?' the shape holds no literal, so equal shapes render the same sql
+        if(templateCache==null || !parameterized) return render();
+
+        Shape shape = shape();
+        String sql = templateCache.get(shape);
+        if(sql==null && (sql = render())!=null) templateCache.put(shape, sql);
+        return sql;
+    }
+    public Appendable end(Appendable out) throws IOException {  // render straight into a caller-owned (reusable) buffer
+        if(renderListener==null && (templateCache==null || !parameterized) && out instanceof StringBuilder) {
+            StringBuilder sb = (StringBuilder) out;
+            int mark = sb.length();
+            sb.ensureCapacity(mark + estimateLength());
+            if(render(sb)) return sb;
+            sb.setLength(mark);     // drop the partial output of a malformed query
+            return null;
+        }
+        String sql = end();
+        if(sql==null) return null;
+        return out.append(sql);
+    }
+
+    public Prepared prepare() {     // the sql of end() along with the values of its '?', in order
+        String sql = end();
+        if(sql==null) return null;
+        return new Prepared(sql, params());
+    }
+
+    public Frozen freeze() {    // immutable, thread-safe snapshot of this query as built so far
+        StringBuilder head = new StringBuilder(estimateLength());
+        if(!buildHead(head)) return null;
+        StringBuilder tail = new StringBuilder();
+        buildTail(tail);
+        ArrayList<Object> headParams = new ArrayList<>();
+        addHeadParams(headParams);
+        ArrayList<Object> tailParams = new ArrayList<>();
+        addTailParams(tailParams);
+        Frozen.Predicate predicates = null;
+        if(wheres!=null) for (Condition condition : wheres) {
+            if(condition.sqlCondition==null) return null;   // a dangling where()/and()/or()
+            predicates = new Frozen.Predicate(predicates, condition.logicOperator, condition.sqlCondition,
+                    condition.params==null ? null : condition.params.clone(), false);
+        }
+        if(seek!=null) predicates = new Frozen.Predicate(predicates, seek.logicOperator, seek.sqlCondition, seek.params, isSeekGrouped());
+        return new Frozen(keyword, keyword==Keyword.SELECT ? refiner : null, head.toString(), headParams.toArray(),
+                predicates, tail.toString(), tailParams.toArray(), limits==null ? null : limits.clone());
+    }
+
+    private String render() {
+        StringBuilder sb = new StringBuilder(estimateLength());
+        return render(sb) ? sb.toString() : null;
+    }
+
+    private boolean render(StringBuilder sb) {
+        if(keyword==Keyword.SELECT && refiner!=null) sb.append(refiner.name()).append('(');
+        if(!buildHead(sb)) return false;
+        buildClause(sb, Keyword.WHERE);
+        buildTail(sb);
+        buildClause(sb, Keyword.LIMIT);
+        if(keyword==Keyword.SELECT && refiner!=null) sb.append(')');   // subquery with ALL/ANY/SOME() need not terminal comma
+        else buildClause(sb, Keyword.DELIMITER);
+        return true;
+    }
+    private boolean buildHead(StringBuilder sb) {   // everything before WHERE
         switch (keyword) {
             case SELECT:
-                if(!buildClause(Keyword.SELECT)) return null;
-                buildClause(Keyword.JOIN);
-                buildClause(Keyword.WHERE);
-                if(buildClause(Keyword.GROUP_BY)) buildClause(Keyword.HAVING);
-                buildClause(Keyword.ORDER_BY);
-                buildClause(Keyword.LIMIT);
-                if(!buildSubqueryRefiner()) buildClause(Keyword.DELIMITER); // subquery with ALL/ANY/SOME() need not terminal comma
+                if(!buildClause(sb, Keyword.SELECT)) return false;
+                buildClause(sb, Keyword.JOIN);
                 break;
             case INSERT:
             case REPLACE:
-                if(keyword==Keyword.INSERT && !buildClause(Keyword.INSERT)) return null;
-                if(keyword==Keyword.REPLACE && !buildClause(Keyword.REPLACE)) return null;
-                buildClause(Keyword.VALUES);
-                buildClause(Keyword.DELIMITER);
+                if(!buildClause(sb, keyword)) return false;
+                buildClause(sb, Keyword.VALUES);
+                buildClause(sb, Keyword.ON_CONFLICT);
                 break;
             case UPDATE:
-                if(!buildClause(Keyword.UPDATE)) return null;
-                if(!buildClause(Keyword.SET)) return null;
-                buildClause(Keyword.WHERE);
-                buildClause(Keyword.ORDER_BY);
-                buildClause(Keyword.LIMIT);
-                buildClause(Keyword.DELIMITER);
+                if(!buildClause(sb, Keyword.UPDATE)) return false;
+                if(!buildClause(sb, Keyword.SET)) return false;
                 break;
             case DELETE:
-                if(!buildClause(Keyword.DELETE)) return null;
-                buildClause(Keyword.WHERE);
-                buildClause(Keyword.ORDER_BY);
-                buildClause(Keyword.LIMIT);
-                buildClause(Keyword.DELIMITER);
+                if(!buildClause(sb, Keyword.DELETE)) return false;
                 break;
         }
-        return sqlQuery.toString();
+        return true;
+    }
+    private void buildTail(StringBuilder sb) {      // everything between WHERE and LIMIT
+        if(keyword==Keyword.SELECT && buildClause(sb, Keyword.GROUP_BY)) buildClause(sb, Keyword.HAVING);
+        buildClause(sb, Keyword.ORDER_BY);
     }
 
-    private boolean buildClause(Keyword keyword) {
-        ArrayList<String> strVals = new ArrayList<>();  // local var for convertion
+    private boolean buildClause(StringBuilder sb, Keyword keyword) {
         switch (keyword) {
             case SELECT:
-                sqlQuery.append("SELECT");
+                sb.append("SELECT");
                 if(table!=null || tables!=null) {
-                    if(distinct) sqlQuery.append(" DISTINCT");
-                    if(tables!=null) sqlQuery.append(String.format(" %s FROM %s", columns, tables));
-                    else sqlQuery.append(String.format(" %s FROM %s", columns, table));
-                } else sqlQuery.append(String.format(" %s", columns));  // SELECT a var or const
+                    if(distinct) sb.append(" DISTINCT");
+                    sb.append(' ').append(columns).append(" FROM ").append(tables!=null ? tables : table);
+                } else sb.append(' ').append(columns);  // SELECT a var or const
                 break;
             case JOIN:
                 if(joins!=null) {
-                    sqlQuery.append(" ");
-                    strVals.clear();
-                    for (Joint join : joins) {
-                        strVals.add(join.sqlJoint);
-                    }
-                    sqlQuery.append(String.join(" ", strVals));
+                    for (Joint join : joins) sb.append(' ').append(join.sqlJoint);
                 } else return false;
                 break;
             case GROUP_BY:
                 if(groups!=null) {
-                    sqlQuery.append(String.format(" GROUP BY %s", groups));
+                    sb.append(" GROUP BY ").append(groups);
                 } else return false;
                 break;
             case HAVING:
                 if(havings!=null) {
-                    sqlQuery.append(" ");
-                    strVals.clear();
-                    for (Iterator it = havings.keySet().iterator(); it.hasNext();) {
-                        String logicOperator = (String)it.next();
-                        Condition condition = havings.get(logicOperator);
-                        strVals.add(String.format("%s %s", logicOperator, condition.sqlCondition));
-                    }
-                    sqlQuery.append(String.join(" ", strVals));
+                    buildConditions(sb, havings);
                 } else return false;
                 break;
 
             case INSERT:
-                if(table!=null) {
-                    if(columns==null) sqlQuery.append(String.format("INSERT INTO %s", table));
-                    else sqlQuery.append(String.format("INSERT INTO %s(%s)", table, columns));
-                } else return false;
-                break;
             case REPLACE:
                 if(table!=null) {
-                    if(columns==null) sqlQuery.append(String.format("REPLACE INTO %s", table));
-                    else sqlQuery.append(String.format("REPLACE INTO %s(%s)", table, columns));
+                    sb.append(keyword==Keyword.INSERT ? "INSERT INTO " : "REPLACE INTO ").append(table);
+                    if(columns!=null) sb.append('(').append(columns).append(')');
                 } else return false;
                 break;
             case VALUES:
-                if(values==null) sqlQuery.append(" DEFAULT VALUES");
+                if(values==null) sb.append(" DEFAULT VALUES");
                 else {
-                    sqlQuery.append(" VALUES");
-                    strVals.clear();
-                    for (String value : values) {
-                        strVals.add(String.format("(%s)", value));
+                    sb.append(" VALUES");
+                    for (int i = 0; i < values.size(); i++) {
+                        if(i!=0) sb.append(", ");
+                        sb.append('(').append(values.get(i)).append(')');
                     }
-                    sqlQuery.append(String.join(", ", strVals));
                 }
                 break;
+            case ON_CONFLICT:
+                if(upserts!=null) {
+                    if(dialect==Dialect.MYSQL) {
+                        sb.append(" ON DUPLICATE KEY UPDATE ");
+                        if(upserts.length==0) {     // no-op assignment, INSERT IGNORE would hide every other error too
+                            String key = conflicts.length!=0 ? conflicts[0] : columns.split(", ")[0];
+                            sb.append(key).append(" = ").append(key);
+                        } else for (int i = 0; i < upserts.length; i++) {
+                            if(i!=0) sb.append(", ");
+                            sb.append(upserts[i]).append(" = VALUES(").append(upserts[i]).append(')');
+                        }
+                    } else {
+                        sb.append(" ON CONFLICT");
+                        if(conflicts.length!=0) sb.append('(').append(String.join(", ", conflicts)).append(')');
+                        if(upserts.length==0) sb.append(" DO NOTHING");
+                        else {
+                            sb.append(" DO UPDATE SET ");
+                            for (int i = 0; i < upserts.length; i++) {
+                                if(i!=0) sb.append(", ");
+                                sb.append(upserts[i]).append(" = excluded.").append(upserts[i]);
+                            }
+                            if(timestamps!=null) for (String column : timestamps) {
+                                if(!Arrays.asList(upserts).contains(column)) sb.append(", ").append(column).append(" = CURRENT_TIMESTAMP");
+                            }
+                        }
+                    }
+                } else return false;
+                break;
 
             case UPDATE:
                 if(table!=null) {
-                    sqlQuery.append(String.format("UPDATE %s SET", table));
+                    sb.append("UPDATE ").append(table).append(" SET");
                 } else return false;
                 break;
             case SET:
                 if(sets!=null) {
-                    sqlQuery.append(" ");
-                    strVals.clear();
-                    for (Iterator it = sets.keySet().iterator(); it.hasNext(); ) {
-                        String column = (String) it.next();
-                        String value = sets.get(column);
-                        strVals.add(String.format("%s = %s", column, value));
+                    sb.append(' ');
+                    boolean first = true;
+                    for (Map.Entry<String, String> set : sets.entrySet()) {
+                        if(!first) sb.append(", ");
+                        sb.append(set.getKey()).append(" = ").append(set.getValue());
+                        first = false;
+                    }
+                    if(timestamps!=null) for (String column : timestamps) {
+                        if(!sets.containsKey(column)) sb.append(", ").append(column).append(" = CURRENT_TIMESTAMP");
                     }
-                    sqlQuery.append(String.join(", ", strVals));
                 } else return false;
                 break;
 
             case DELETE:
                 if(table!=null) {
-                    sqlQuery.append(String.format("DELETE FROM %s", table));
+                    sb.append("DELETE FROM ").append(table);
                 } else return false;
                 break;
 
             case WHERE:
-                if(wheres!=null) {
-                    sqlQuery.append(" ");
-                    strVals.clear();
-                    for (Iterator it = wheres.keySet().iterator(); it.hasNext();) {
-                        String logicOperator = (String)it.next();
-                        Condition condition = wheres.get(logicOperator);
-                        strVals.add(String.format("%s %s", logicOperator, condition.sqlCondition));
-                    }
-                    sqlQuery.append(String.join(" ", strVals));
-                } else return false;
+                if(wheres==null && seek==null) return false;
+                if(isSeekGrouped()) {     // "WHERE (a OR b) AND seek", or the seek would only limit the last branch
+                    sb.append(" WHERE (").append(wheres.get(0).sqlCondition);
+                    for (int i = 1; i < wheres.size(); i++) sb.append(' ').append(wheres.get(i).logicOperator).append(' ').append(wheres.get(i).sqlCondition);
+                    sb.append(')');
+                } else if(wheres!=null) buildConditions(sb, wheres);
+                if(seek!=null) sb.append(wheres!=null ? " AND " : " WHERE ").append(seek.sqlCondition);
                 break;
             case ORDER_BY:
                 if(orders!=null) {
-                    sqlQuery.append(" ORDER BY ");
-                    strVals.clear();
-                    for (Iterator it = orders.keySet().iterator(); it.hasNext();) {
-                        String column = (String)it.next();
-                        boolean reserve = orders.get(column);
-                        if(reserve) strVals.add(String.format("%s DESC", column));
-                        else strVals.add(column);
+                    sb.append(" ORDER BY ");
+                    boolean first = true;
+                    for (Map.Entry<String, Boolean> order : orders.entrySet()) {
+                        if(!first) sb.append(", ");
+                        sb.append(order.getKey());
+                        if(order.getValue()) sb.append(" DESC");
+                        first = false;
                     }
-                    sqlQuery.append(String.join(", ", strVals));
                 } else return false;
                 break;
             case LIMIT:
                 if(limits!=null) {
-                    sqlQuery.append(" LIMIT ");
-                    if(limits.length==1) sqlQuery.append(limits[0]);
-                    else sqlQuery.append(String.format("%d, %d", limits[0], limits[1]));
+                    sb.append(" LIMIT ").append(limits[0].longValue());
+                    if(limits.length!=1) sb.append(", ").append(limits[1].longValue());
                 } else return false;
                 break;
 
             case DELIMITER:
-                sqlQuery.append(";");
+                sb.append(';');
                 break;
         }
         return true;
     }
+    private boolean isSeekGrouped() { return seek!=null && wheres!=null && wheres.size() > 1; }
+    private static void buildConditions(StringBuilder sb, ArrayList<Condition> conditions) {
+        for (Condition condition : conditions) {
+            sb.append(' ').append(condition.logicOperator).append(' ').append(condition.sqlCondition);
+        }
+    }
 
-    private boolean buildSubqueryRefiner() {
-        if(refiner ==null) return false;
-        switch (refiner) {
-            case ALL:
-                sqlQuery.insert(0, "ALL(").append(")");
-                break;
-            case ANY:
-                sqlQuery.insert(0, "ANY(").append(")");
-                break;
-            case SOME:
-                sqlQuery.insert(0, "SOME(").append(")");
-                break;
+    private Object[] params() {     // mirrors the clause order of render()
+        ArrayList<Object> params = new ArrayList<>();
+        addHeadParams(params);
+        addParams(params, wheres);
+        if(seek!=null && seek.params!=null) Collections.addAll(params, seek.params);
+        addTailParams(params);
+        return params.toArray();
+    }
+    private void addHeadParams(ArrayList<Object> params) {
+        if((keyword==Keyword.INSERT || keyword==Keyword.REPLACE) && valueParams!=null) {
+            for (Object[] row : valueParams) if(row!=null) Collections.addAll(params, row);
+        } else if(keyword==Keyword.UPDATE && sets!=null) {
+            for (String column : sets.keySet()) if(setParams.containsKey(column)) Collections.addAll(params, setParams.get(column));
         }
-        return true;
     }
+    private void addTailParams(ArrayList<Object> params) {
+        if(keyword==Keyword.SELECT && groups!=null) addParams(params, havings);
+    }
+    private static void addParams(ArrayList<Object> params, ArrayList<Condition> conditions) {
+        if(conditions==null) return;
+        for (Condition condition : conditions) if(condition.params!=null) Collections.addAll(params, condition.params);
+    }
+
+    String buildInsertHead() {  // "INSERT INTO User(id, name)" for BulkInsert
+        StringBuilder sb = new StringBuilder(32 + length(table) + length(columns));
+        buildClause(sb, keyword);
+        return sb.toString();
+    }
+    String buildInsertTail() {  // " ON CONFLICT(id) DO UPDATE SET ..." or "" for BulkInsert
+        StringBuilder sb = new StringBuilder();
+        buildClause(sb, Keyword.ON_CONFLICT);
+        return sb.toString();
+    }
+
+    private int estimateLength() {  // pre-size the output buffer so that it never has to grow while rendering
+        int length = 32 + length(table) + length(tables) + length(columns) + length(groups);
+        if(values!=null) for (String value : values) length += value.length() + 4;
+        if(upserts!=null) for (String column : upserts) length += 2 * column.length() + 16;
+        if(timestamps!=null) for (String column : timestamps) length += column.length() + 22;
+        if(sets!=null) for (Map.Entry<String, String> set : sets.entrySet()) length += set.getKey().length() + length(set.getValue()) + 5;
+        if(wheres!=null) for (Condition condition : wheres) length += length(condition.sqlCondition) + 5;
+        if(havings!=null) for (Condition condition : havings) length += length(condition.sqlCondition) + 8;
+        if(joins!=null) for (Joint join : joins) length += length(join.sqlJoint) + 1;
+        if(orders!=null) for (String column : orders.keySet()) length += column.length() + 7;
+        if(limits!=null) length += 48;
+        if(seek!=null) length += seek.sqlCondition.length() + 9;
+        return length;
+    }
+    private static int length(String str) { return str==null ? 4 : str.length(); }
 
-    private static String convertValue(Object value) {
-        if(value==null)
-            return "NULL";
-        else if(value instanceof Boolean)
-            return (Boolean)value ? "1" : "0";
-        else if(value instanceof Number)
-            return value.toString();
-        else {
-            String val = value.toString().trim();
-            if(val.endsWith(";")) val = val.substring(0, val.length()-1);
-            if(val.length() > 6 && val.substring(0, 6).equalsIgnoreCase("SELECT"))
-                return String.format("(%s)", val);
-            else if(val.matches("\\(.*\\)") || val.matches("(?i)ALL\\(.*\\)")
-                    || val.matches("(?i)ANY\\(.*\\)") || val.matches("(?i)SOME\\(.*\\)"))
-                return val;
-            else
-                return String.format("'%s'", val);
+    private static final class Shape {  // TemplateCache key: the immutable strings render() appends, shared not copied, and the rest as numbers
+        private final String[] strings;
+        private final long[] numbers;
+        private final int hash;
+        Shape(String[] strings, long[] numbers) {
+            this.strings = strings;
+            this.numbers = numbers;
+            int hash = Arrays.hashCode(numbers);
+            for (String str : strings) hash = 31 * hash + (str==null ? 0 : str.hashCode());    // String is final, so no virtual call
+            this.hash = hash;
         }
+        @Override
+        public int hashCode() { return hash; }
+        @Override
+        public boolean equals(Object o) {
+            if(!(o instanceof Shape)) return false;
+            Shape shape = (Shape) o;
+            if(hash!=shape.hash || strings.length!=shape.strings.length || !Arrays.equals(numbers, shape.numbers)) return false;
+            for (int i = 0; i < strings.length; i++) {
+                String a = strings[i], b = shape.strings[i];
+                if(a!=b && (a==null || !a.equals(b))) return false;
+            }
+            return true;
+        }
+    }
+    private Shape shape() {     // every input of render(); the size of each list (-1 for null) goes in numbers, so that flattening is unambiguous
+        String[] strings = new String[5 + size(values) + 2 * size(sets) + size(conflicts) + size(upserts) + size(timestamps)
+                + 2 * size(wheres) + size(joins) + 2 * size(havings) + size(orders)];
+        long[] numbers = new long[14 + size(orders) + size(limits)];
+        int s = 0, n = 0;
+        numbers[n++] = keyword.ordinal();
+        numbers[n++] = dialect.ordinal();
+        numbers[n++] = refiner==null ? -1 : refiner.ordinal();
+        numbers[n++] = distinct ? 1 : 0;
+        strings[s++] = table;
+        strings[s++] = tables;
+        strings[s++] = columns;
+        strings[s++] = groups;
+        strings[s++] = seek==null ? null : seek.sqlCondition;
+        numbers[n++] = values==null ? -1 : values.size();
+        if(values!=null) for (String value : values) strings[s++] = value;
+        numbers[n++] = sets==null ? -1 : sets.size();
+        if(sets!=null) for (Map.Entry<String, String> set : sets.entrySet()) { strings[s++] = set.getKey(); strings[s++] = set.getValue(); }
+        numbers[n++] = conflicts==null ? -1 : conflicts.length;
+        s = flatten(strings, s, conflicts);
+        numbers[n++] = upserts==null ? -1 : upserts.length;
+        s = flatten(strings, s, upserts);
+        numbers[n++] = timestamps==null ? -1 : timestamps.length;
+        s = flatten(strings, s, timestamps);
+        numbers[n++] = wheres==null ? -1 : wheres.size();
+        s = flatten(strings, s, wheres);
+        numbers[n++] = joins==null ? -1 : joins.size();
+        if(joins!=null) for (Joint join : joins) strings[s++] = join.sqlJoint;
+        numbers[n++] = havings==null ? -1 : havings.size();
+        s = flatten(strings, s, havings);
+        numbers[n++] = orders==null ? -1 : orders.size();
+        if(orders!=null) for (Map.Entry<String, Boolean> order : orders.entrySet()) { strings[s++] = order.getKey(); numbers[n++] = order.getValue() ? 1 : 0; }
+        numbers[n++] = limits==null ? -1 : limits.length;
+        if(limits!=null) for (Long limit : limits) numbers[n++] = limit;
+        return new Shape(strings, numbers);
+    }
+    private static int flatten(String[] strings, int s, String[] items) {
+        if(items!=null) for (String item : items) strings[s++] = item;
+        return s;
+    }
+    private static int flatten(String[] strings, int s, ArrayList<Condition> conditions) {
+        if(conditions!=null) for (Condition condition : conditions) { strings[s++] = condition.logicOperator; strings[s++] = condition.sqlCondition; }
+        return s;
+    }
+    private static int size(Object[] items) { return items==null ? 0 : items.length; }
+    private static int size(Collection<?> items) { return items==null ? 0 : items.size(); }
+    private static int size(Map<?, ?> items) { return items==null ? 0 : items.size(); }
+
+    static String convertValue(Object value, Dialect dialect) { return ValueEncoder.encode(value, dialect); }
+    static String bindValue(Object value, boolean parameterized, List<Object> params, Dialect dialect) { // '?' + params, or the literal
+        if(value instanceof Query || value instanceof Frozen) {    // explicit sub-query, its own '?' values come along
+            Prepared subquery = value instanceof Query ? ((Query) value).prepare() : ((Frozen) value).prepare();
+            Collections.addAll(params, subquery.getParams());
+            StringBuilder sb = new StringBuilder(subquery.getSql().length() + 2);
+            ValueEncoder.subquery(sb, subquery.getSql());
+            return sb.toString();
+        }
+        if(parameterized && !isSqlFragment(value)) {
+            params.add(value);
+            return "?";
+        }
+        return convertValue(value, dialect);
+    }
+    static boolean isSqlFragment(Object value) { return ValueEncoder.isSqlFragment(value); }
+    private static String subquery(String sql) {    // "SELECT ...;" => "(SELECT ...)", a parenthesized list stays
+        String subq = sql.trim();
+        if(subq.endsWith(";")) subq = subq.substring(0, subq.length() - 1).trim();
+        return subq.startsWith("(") ? subq : "(" + subq + ")";
     }
 
     public Query setDistinct(boolean distinct) {
@@ -550,8 +1132,37 @@ public class Query {
         this.columns = String.join(", ", Arrays.asList(columns));
         return this;
     }
+    public Query setDialect(Dialect dialect) {
+        this.dialect = dialect;
+        return this;
+    }
+    public Dialect getDialect() { return dialect; }
+    public Keyword getKeyword() { return keyword; }
+    public String getTable() { return tables!=null ? tables : table; }  // "User", or "Author, Book" for a Cartesian product
+    public List<String> getOrderColumns() { return orders==null ? Collections.emptyList() : new ArrayList<>(orders.keySet()); }
+    public int getColumnCount() { return columnCount; }
+    public boolean isSplittable() {     // results of the query run on parts of an IN list can be concatenated
+        return !distinct && groups==null && havings==null && orders==null && limits==null;
+    }
     public Query setKeyword(Keyword keyword) {
         this.keyword = keyword;
         return this;
     }
+    public Query setTimestamps(String... columns) {     // columns an UPDATE sets to CURRENT_TIMESTAMP when set() did not
+        this.timestamps = columns==null || columns.length==0 ? null : columns.clone();
+        return this;
+    }
+    public Query setTemplateCache(TemplateCache templateCache) {
+        this.templateCache = templateCache;
+        return this;
+    }
+    public Query setRenderListener(RenderListener renderListener) {
+        this.renderListener = renderListener;
+        return this;
+    }
+    public Query setParameterized(boolean parameterized) {
+        this.parameterized = parameterized;
+        return this;
+    }
+    public boolean isParameterized() { return parameterized; }
 }
@@ -0,0 +1,10 @@
+package tk.kahsolt.sqlbuilder.sql;
+
+// Instrumentation hook of SQLBuilder, see SQLBuilder.enableMetrics(). Called on the rendering/executing thread.
+public interface RenderListener {
+
+    void onRender(Keyword keyword, String sql, long nanos);     // sql is null when the statement could not be built
+
+    default void onExecute(Keyword keyword, String sql, long nanos) { }    // by the jdbc helpers that were handed this listener
+
+}
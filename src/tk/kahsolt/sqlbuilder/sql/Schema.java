@@ -0,0 +1,180 @@
+package tk.kahsolt.sqlbuilder.sql;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+// A set of CREATE TABLE definitions put in foreign key order, parents before the tables referencing them, so they
+// can be created together in one Transaction. For an initial bulk load createBare() makes the tables alone and
+// finish() adds, once the rows are in, the indexes and UNIQUE columns, the foreign keys (MySQL; SQLite keeps them
+// in the table, unchecked while PRAGMA foreign_keys is OFF) and the timestamp triggers. MySQL commits every DDL
+// statement on its own, so there the transaction only groups them. A SQLite table with Truncate.INCREMENTAL would
+// put PRAGMA auto_vacuum in front of its CREATE, which cannot go in the transaction: create(Connection) and
+// bulkLoad() run it first, on their own, callers of create() and createBare() run autoVacuum() themselves.
+public class Schema {
+
+    public interface Loader {
+        void load(Connection connection) throws SQLException;
+    }
+
+    private final Dialect dialect;
+    private final LinkedHashMap<String, Table> tables = new LinkedHashMap<>();     // lower-cased name => definition
+
+    public Schema() { this(Dialect.SQLITE); }
+    public Schema(Dialect dialect) { this.dialect = dialect; }
+
+    public Schema table(Table table) {  // a later definition of the same table replaces the earlier one
+        if(table.getKeyword()!=Keyword.CREATE) throw new IllegalArgumentException("need a CREATE TABLE definition");
+        if(table.getDialect()!=dialect) throw new IllegalArgumentException("table " + table.getTable() + " is not " + dialect);
+        if(!table.isRenderable()) throw new IllegalArgumentException("table " + table.getTable() + " cannot be rendered, e.g. a partial index on MySQL");
+        tables.put(table.getTable().toLowerCase(), table);
+        return this;
+    }
+
+    public Dialect getDialect() { return dialect; }
+
+    // Kahn's order, stable: among the tables whose parents are all placed the earliest added goes first.
+    // References outside the schema are taken as existing. A cycle is left in the order added, which only
+    // MySQL's create() cannot run: its CREATE TABLE checks the referenced table, use createBare() and finish().
+    public List<Table> order() {
+        ArrayList<Table> pending = new ArrayList<>(tables.values());
+        ArrayList<Table> ordered = new ArrayList<>(pending.size());
+        ArrayList<String> placed = new ArrayList<>(pending.size());
+        while (!pending.isEmpty()) {
+            int next = -1;
+            for (int i = 0; i < pending.size() && next < 0; i++) {
+                if(placed.containsAll(parentsOf(pending.get(i)))) next = i;
+            }
+            if(next < 0) {
+                ordered.addAll(pending);
+                break;
+            }
+            Table table = pending.remove(next);
+            ordered.add(table);
+            placed.add(table.getTable().toLowerCase());
+        }
+        return ordered;
+    }
+
+    public Transaction create() {   // every Table.end() but autoVacuum(), in order
+        List<Table> order = order();
+        if(dialect==Dialect.MYSQL && cycleOf(order)!=null)
+            throw new IllegalStateException("foreign key cycle " + cycleOf(order) + ", use createBare() and finish()");
+        Transaction transaction = new Transaction();
+        for (Table table : order) transaction.block(table.renderCreate());
+        return transaction;
+    }
+
+    public String autoVacuum() {    // "PRAGMA auto_vacuum = INCREMENTAL;" when a table asks for it, else null; before create()
+        for (Table table : tables.values()) if(table.isAutoVacuum()) return "PRAGMA auto_vacuum = INCREMENTAL;";
+        return null;
+    }
+
+    public Transaction createBare() {   // bulk load, before: tables without indexes, UNIQUE, MySQL foreign keys and triggers
+        Transaction transaction = new Transaction();
+        for (Table table : order()) transaction.block(table.renderBare());
+        return transaction;
+    }
+
+    public Transaction finish() {       // bulk load, after: all the indexes first, so MySQL finds them for the foreign keys
+        List<Table> order = order();
+        Transaction transaction = new Transaction();
+        for (Table table : order) block(transaction, table.renderIndexes());
+        for (Table table : order) block(transaction, table.renderForeignKeys());
+        for (Table table : order) block(transaction, table.renderTriggers());
+        return transaction;
+    }
+
+    public Transaction drop() {     // children first
+        List<Table> order = order();
+        Transaction transaction = new Transaction();
+        for (int i = order.size() - 1; i >= 0; i--) transaction.block(new Table(order.get(i).getTable(), Keyword.DROP).dialect(dialect).end());
+        return transaction;
+    }
+
+    public int[] create(Connection connection) throws SQLException {
+        Transaction transaction = create();
+        autoVacuum(connection);
+        return transaction.execute(connection);
+    }
+
+    // createBare(), the loader, finish(). SQLite turns foreign_keys off for the load, which only works outside a
+    // transaction, then runs PRAGMA foreign_key_check and puts foreign_keys back; MySQL checks the rows when
+    // finish() adds the foreign keys. Either way a violation fails with an SQLException after the load.
+    public void bulkLoad(Connection connection, Loader loader) throws SQLException {
+        boolean sqlite = dialect==Dialect.SQLITE;
+        boolean foreignKeys = sqlite && foreignKeys(connection);
+        if(foreignKeys) pragma(connection, "PRAGMA foreign_keys = OFF");
+        try {
+            autoVacuum(connection);
+            createBare().execute(connection);
+            loader.load(connection);
+            finish().execute(connection);
+            if(sqlite) checkForeignKeys(connection);
+        } finally {
+            if(foreignKeys) pragma(connection, "PRAGMA foreign_keys = ON");
+        }
+    }
+
+    private List<String> parentsOf(Table table) {   // in this schema, not itself
+        ArrayList<String> parents = new ArrayList<>();
+        String self = table.getTable().toLowerCase();
+        for (String reference : table.getReferencedTables()) {
+            String parent = reference.toLowerCase();
+            if(!parent.equals(self) && tables.containsKey(parent)) parents.add(parent);
+        }
+        return parents;
+    }
+
+    private String cycleOf(List<Table> order) {    // the first table referencing one created after it, null if none
+        ArrayList<String> placed = new ArrayList<>(order.size());
+        for (Table table : order) {
+            for (String parent : parentsOf(table)) {
+                if(!placed.contains(parent)) return table.getTable() + " -> " + tables.get(parent).getTable();
+            }
+            placed.add(table.getTable().toLowerCase());
+        }
+        return null;
+    }
+
+    private static void block(Transaction transaction, String sql) {
+        if(!sql.isEmpty()) transaction.block(sql);
+    }
+
+    private static boolean foreignKeys(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("PRAGMA foreign_keys")) {
+            return rs.next() && rs.getInt(1)==1;
+        }
+    }
+
+    private void autoVacuum(Connection connection) throws SQLException {
+        String sql = autoVacuum();
+        if(sql!=null) pragma(connection, sql);
+    }
+    private static void pragma(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static void checkForeignKeys(Connection connection) throws SQLException {
+        StringBuilder sb = new StringBuilder();
+        int violations = 0;
+        try (Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("PRAGMA foreign_key_check")) {   // table, rowid, parent, fkid
+            while (rs.next()) {
+                if(violations++ < 10) {
+                    sb.append(violations==1 ? ": " : ", ")
+                      .append(rs.getString(1)).append(" rowid ").append(rs.getString(2)).append(" -> ").append(rs.getString(3));
+                }
+            }
+        }
+        if(violations!=0) throw new SQLException(violations + " foreign key violations" + sb + (violations > 10 ? ", ..." : ""));
+    }
+
+}
@@ -0,0 +1,62 @@
+package tk.kahsolt.sqlbuilder.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Splits what end() renders ("CREATE TABLE ...; CREATE INDEX ...; CREATE TRIGGER ... BEGIN ...; END;") into single
+// statements, for drivers that run one statement per call. Quotes and trigger bodies are kept whole.
+public final class Script {
+
+    private Script() { }
+
+    public static List<String> split(String script) {   // statements without their terminal ';', in order
+        ArrayList<String> statements = new ArrayList<>();
+        int start = 0;
+        boolean trigger = false;    // inside CREATE TRIGGER ... END
+        for (int i = 0; i < script.length(); i++) {
+            char c = script.charAt(i);
+            if(c == '\'' || c == '"' || c == '`') {
+                int close = script.indexOf(c, i + 1);
+                while (close != -1 && close + 1 < script.length() && script.charAt(close + 1) == c) close = script.indexOf(c, close + 2);  // '' escape
+                if(close == -1) break;
+                i = close;
+            } else if(c == ';') {
+                String statement = script.substring(start, i).trim();
+                if(!trigger && startsWith(statement, "CREATE TRIGGER")) trigger = true;
+                if(trigger && !endsWithWord(statement, "END")) continue;
+                if(!statement.isEmpty()) statements.add(statement);
+                trigger = false;
+                start = i + 1;
+            }
+        }
+        String rest = script.substring(start).trim();
+        if(!rest.isEmpty()) statements.add(rest);
+        return statements;
+    }
+
+    // the statement a script uses to start or end a transaction itself, or one that cannot run inside one: BEGIN,
+    // COMMIT, ROLLBACK, VACUUM, a PRAGMA setting (e.g. SQLite's TRUNCATE); null when it can go in a Transaction
+    public static String transactionControl(String script) {
+        for (String statement : split(script)) {
+            if(startsWithWord(statement, "BEGIN") || startsWithWord(statement, "START") || startsWithWord(statement, "COMMIT")
+                    || startsWithWord(statement, "END") || startsWithWord(statement, "VACUUM")
+                    || startsWithWord(statement, "ROLLBACK") && !statement.toUpperCase().contains(" TO ")
+                    || startsWithWord(statement, "PRAGMA") && statement.indexOf('=') > 0) return statement;
+        }
+        return null;
+    }
+
+    private static boolean startsWith(String statement, String prefix) {
+        return statement.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+    private static boolean startsWithWord(String statement, String word) {
+        return startsWith(statement, word)
+                && (statement.length() == word.length() || !Character.isLetterOrDigit(statement.charAt(word.length())));
+    }
+    private static boolean endsWithWord(String statement, String word) {
+        int from = statement.length() - word.length();
+        return from >= 0 && statement.regionMatches(true, from, word, 0, word.length())
+                && (from == 0 || !Character.isLetterOrDigit(statement.charAt(from - 1)));
+    }
+
+}
@@ -0,0 +1,184 @@
+package tk.kahsolt.sqlbuilder.sql;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Execution times aggregated per Fingerprint: count, total, max and p99 of the statements that took at least
+// threshold(). Memory is bounded by capacity(): the table keeps the heaviest fingerprints by total time
+// (weighted Space-Saving), a newcomer evicts the lightest and inherits its total as error.
+// Feed it from the jdbc helpers' metrics(...), or call record() around your own executions.
+public class SlowQueryLog implements RenderListener, AutoCloseable {
+
+    public interface Listener {
+        void onDump(List<Entry> top, long recorded, long evicted);  // heaviest first
+    }
+
+    public static final class Entry {    // a snapshot, later executions do not change it
+
+        private final long hash;
+        private final String fingerprint;
+        private final String sample;
+        private final long count;
+        private final long totalNanos;
+        private final long p99Nanos;
+        private final long maxNanos;
+        private final long error;
+
+        private Entry(Slot slot) {
+            this.hash = slot.hash;
+            this.fingerprint = slot.fingerprint;
+            this.sample = slot.sample;
+            this.count = slot.nanos.count();
+            this.totalNanos = slot.nanos.sum();
+            this.p99Nanos = slot.nanos.percentile(99);
+            this.maxNanos = slot.max;
+            this.error = slot.error;
+        }
+
+        public long getHash() { return hash; }
+        public String getFingerprint() { return fingerprint; }
+        public String getSample() { return sample; }
+        public long getCount() { return count; }
+        public long getTotalNanos() { return totalNanos; }
+        public long getMeanNanos() { return count==0 ? 0 : totalNanos / count; }
+        public long getP99Nanos() { return p99Nanos; }
+        public long getMaxNanos() { return maxNanos; }
+        public long getError() { return error; }
+
+        @Override
+        public String toString() {
+            return String.format("%s count=%d total=%.3fms mean=%.3fms p99<=%.3fms max=%.3fms%s %s", Fingerprint.hex(hash),
+                    count, totalNanos / 1e6, getMeanNanos() / 1e6, p99Nanos / 1e6, maxNanos / 1e6,
+                    error==0 ? "" : String.format(" error<=%.3fms", error / 1e6), fingerprint);
+        }
+    }
+
+    private static final class Slot {   // the live counters of a fingerprint, guarded by the log
+
+        private final long hash;
+        private final String fingerprint;
+        private final long error;       // total nanos inherited from the evicted slot, an upper bound of what was missed
+        private final Metrics.Histogram nanos = new Metrics.Histogram();
+        private long max;
+        private String sample;          // the slowest statement as executed, for EXPLAIN
+
+        private Slot(long hash, String fingerprint, long error) {
+            this.hash = hash;
+            this.fingerprint = fingerprint;
+            this.error = error;
+        }
+
+        private long weight() { return error + nanos.sum(); }
+    }
+
+    private int capacity = 100;         // fingerprints tracked
+    private long thresholdNanos;        // faster executions are not logged
+    private HashMap<Long, Slot> entries = new HashMap<>();
+    private long recorded;
+    private long evicted;
+    private ScheduledExecutorService dumper;
+    private Listener listener;
+
+    public SlowQueryLog capacity(int capacity) { this.capacity = Math.max(1, capacity); return this; }
+    public SlowQueryLog threshold(long time, TimeUnit unit) { this.thresholdNanos = unit.toNanos(Math.max(0, time)); return this; }
+    public synchronized SlowQueryLog dumpEvery(long period, TimeUnit unit, Listener listener) {  // hands over and clears the table each period
+        if(dumper!=null) dumper.shutdownNow();
+        this.listener = listener;
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sqlbuilder-slow-query-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(this::dumpToListener, period, period, unit);
+        return this;
+    }
+
+    @Override
+    public void onRender(Keyword keyword, String sql, long nanos) { }     // rendering is not executing
+    @Override
+    public void onExecute(Keyword keyword, String sql, long nanos) { record(sql, nanos); }
+
+    public void record(String sql, long nanos) {
+        if(nanos < thresholdNanos || sql==null) return;
+        String fingerprint = Fingerprint.normalize(sql);    // outside the lock
+        long hash = Fingerprint.hashOf(fingerprint);
+        synchronized (this) {
+            recorded++;
+            Slot entry = entries.get(hash);
+            if(entry==null) {
+                long error = 0;
+                if(entries.size() >= capacity) {
+                    Slot lightest = null;
+                    for (Slot e : entries.values()) if(lightest==null || e.weight() < lightest.weight()) lightest = e;
+                    entries.remove(lightest.hash);
+                    error = lightest.weight();
+                    evicted++;
+                }
+                entry = new Slot(hash, fingerprint, error);
+                entries.put(hash, entry);
+            }
+            entry.nanos.record(nanos);
+            if(nanos >= entry.max) {
+                entry.max = nanos;
+                entry.sample = sql;
+            }
+        }
+    }
+
+    public synchronized List<Entry> top(int n) {    // heaviest by total time first, as snapshots
+        ArrayList<Slot> slots = new ArrayList<>(entries.values());
+        slots.sort((a, b) -> Long.compare(b.weight(), a.weight()));
+        ArrayList<Entry> list = new ArrayList<>(Math.min(n, slots.size()));
+        for (Slot slot : slots) {
+            if(list.size()==n) break;
+            list.add(new Entry(slot));
+        }
+        return list;
+    }
+    public List<Entry> top() { return top(Integer.MAX_VALUE); }
+    public synchronized List<Entry> dump() {        // top() and start over
+        List<Entry> top = top();
+        entries = new HashMap<>();
+        recorded = 0;
+        evicted = 0;
+        return top;
+    }
+    public synchronized long getRecorded() { return recorded; }
+    public synchronized long getEvicted() { return evicted; }
+    public synchronized int size() { return entries.size(); }
+
+    public String report(int n) {
+        StringBuilder sb = new StringBuilder();
+        for (Entry entry : top(n)) sb.append(entry).append('\n');
+        return sb.toString();
+    }
+
+    @Override
+    public void close() {   // stops the periodic dump after a last one
+        ScheduledExecutorService dumper;
+        synchronized (this) {
+            dumper = this.dumper;
+            this.dumper = null;
+        }
+        if(dumper==null) return;
+        dumper.shutdownNow();
+        dumpToListener();
+    }
+
+    private void dumpToListener() {
+        List<Entry> top;
+        long recorded, evicted;
+        synchronized (this) {
+            recorded = this.recorded;
+            evicted = this.evicted;
+            top = dump();
+        }
+        if(listener!=null) listener.onDump(Collections.unmodifiableList(top), recorded, evicted);
+    }
+
+}
@@ -1,6 +1,8 @@
 package tk.kahsolt.sqlbuilder.sql;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 
 public class Table {
 
@@ -23,9 +25,9 @@ public class Table {
         public Column(String name) { this.name = name; }
         public Column(String name, Table table) { this.name = name; this.table = table; }
         public Column type(String type) { this.type = type.toUpperCase(); return this; }
-        public Column type(long length) { this.type = String.format("VARCHAR(%d)", length); return this; }
-        public Column type(String type, long length) { this.type = String.format("%s(%d)", type.toUpperCase(), length); return this; }
-        public Column type(String type, long length, int precision) { this.type = String.format("%s(%d, %d)", type.toUpperCase(), length, precision); return this; }
+        public Column type(long length) { this.type = "VARCHAR(" + length + ")"; return this; }
+        public Column type(String type, long length) { this.type = type.toUpperCase() + "(" + length + ")"; return this; }
+        public Column type(String type, long length, int precision) { this.type = type.toUpperCase() + "(" + length + ", " + precision + ")"; return this; }
         public Column defaultValue(Object defaultValue) { this.defaultValue = defaultValue; return this; }
         public Column referencesTo(String table) { return referencesTo(table, "id", false, false); }
         public Column referencesTo(String table, boolean isUpdateCascade, boolean isDeleteCascade) { return referencesTo(table, "id", isUpdateCascade, isDeleteCascade); }
@@ -36,8 +38,9 @@ public class Table {
             if(isUpdateCascade) actUp = " ON UPDATE CASCADE";
             if(isDeleteCascade) actDel = " ON DELETE CASCADE";
             if(this.table.foreignkeys ==null) this.table.foreignkeys = new ArrayList<String>();
-            this.table.foreignkeys.add(String.format("FOREIGN KEY(%s) REFERENCES %s(%s)%s%s",
-                    this.name, table, column, actUp, actDel));
+            if(this.table.references ==null) this.table.references = new ArrayList<String>();
+            this.table.references.add(table);
+            this.table.foreignkeys.add("FOREIGN KEY(" + this.name + ") REFERENCES " + table + "(" + column + ")" + actUp + actDel);
             return this;
         }
 
@@ -58,6 +61,93 @@ public class Table {
 
     }
 
+    public enum Truncate {  // how SQLite gives back the pages of a truncated table, MySQL always runs TRUNCATE TABLE
+        VACUUM,         // DELETE, then VACUUM the whole database file: smallest file, but O(database) and blocks every writer
+        NONE,           // DELETE only, the freed pages are reused by later inserts
+        INCREMENTAL,    // DELETE, then PRAGMA incremental_vacuum(n); CREATE sets auto_vacuum = INCREMENTAL for it, which only
+                        // takes on a database without tables yet: an existing one needs a VACUUM once, else this frees nothing
+        RECREATE,       // DROP and CREATE again from this Table's definition, see SQLBuilder.truncateTable(Table)
+    }
+
+    public static class Index {
+
+        private Table table;
+
+        private String name;                                // default idx_<table>_<keys>
+        private ArrayList<String> keys = new ArrayList<>(); // column names, or "(expression)"
+        private ArrayList<Integer> prefixes = new ArrayList<>();
+        private ArrayList<Boolean> reverses = new ArrayList<>();
+        private boolean isUnique = false;
+        private String where;
+        private String using;
+
+        public Index() { }
+        public Index(String name) { this.name = name; }
+        public Index name(String name) { this.name = name; return this; }
+        public Index column(String column) { return column(column, 0, false); }
+        public Index column(String column, boolean reverse) { return column(column, 0, reverse); }
+        public Index column(String column, int prefixLength) { return column(column, prefixLength, false); }
+        public Index column(String column, int prefixLength, boolean reverse) {    // prefixLength: MySQL only, first n chars
+            keys.add(column);
+            prefixes.add(prefixLength);
+            reverses.add(reverse);
+            return this;
+        }
+        public Index expression(String expression) { return expression(expression, false); }   // "lower(email)", MySQL 8.0.13+
+        public Index expression(String expression, boolean reverse) { return column("(" + expression + ")", 0, reverse); }
+        public Index cover(String... columns) {     // trailing keys so the query is answered by the index alone, no INCLUDE in either dialect
+            for (String column : columns) column(column);
+            return this;
+        }
+        public Index unique() { return unique(true); }
+        public Index unique(boolean enable) { isUnique = enable; return this; }
+        public Index where(String predicate) { this.where = predicate; return this; }  // partial index, SQLite only; on MySQL end() gives null
+        public Index using(String method) { this.using = method.toUpperCase(); return this; }  // MySQL: BTREE, HASH, FULLTEXT, SPATIAL
+
+        public Table end() { return table; }
+
+        private String nameOn(String table) {
+            if(name!=null) return name;
+            StringBuilder sb = new StringBuilder(isUnique ? "uq_" : "idx_").append(table);
+            for (String key : keys) {
+                sb.append('_');
+                for (int i = 0; i < key.length(); i++) {
+                    char c = key.charAt(i);
+                    if(Character.isLetterOrDigit(c)) sb.append(c);
+                    else if(sb.charAt(sb.length() - 1) != '_') sb.append('_');
+                }
+                while (sb.charAt(sb.length() - 1) == '_') sb.setLength(sb.length() - 1);
+            }
+            return sb.toString();
+        }
+
+    }
+
+    public static final class Frozen {  // immutable snapshot of a built table statement, see freeze()
+
+        private final String table;
+        private final Dialect dialect;
+        private final Keyword keyword;
+        private final String sql;
+
+        private Frozen(String table, Dialect dialect, Keyword keyword, String sql) {
+            this.table = table;
+            this.dialect = dialect;
+            this.keyword = keyword;
+            this.sql = sql;
+        }
+
+        public String end() { return sql; }
+        public Appendable end(Appendable out) throws IOException { return out.append(sql); }
+
+        public String getTable() { return table; }
+        public Dialect getDialect() { return dialect; }
+        public Keyword getKeyword() { return keyword; }
+
+        @Override
+        public String toString() { return sql; }
+    }
+
     private Dialect dialect = Dialect.SQLITE;
     private Keyword keyword = Keyword.CREATE;
 
@@ -65,10 +155,18 @@ public class Table {
     private boolean overwrite = false;
     private ArrayList<Column> columns;
     private ArrayList<String> foreignkeys;
+    private ArrayList<String> references;   // the tables of foreignkeys, for Schema
+    private ArrayList<Index> indexes;
+    private boolean indexForeignKeys = false;
+    private boolean inlineTimestamps = false;   // SQLite: no trigger, Query puts updateSetCurrent() columns into SET, see SQLBuilder
+    private Truncate truncate = Truncate.VACUUM;
+    private long vacuumPages = 0;           // INCREMENTAL: pages per PRAGMA incremental_vacuum, 0 for all free pages
     private String engine;
     private String charset;
     private String comment;
 
+    private RenderListener renderListener;  // metrics of the SQLBuilder, optional
+
     public Table(String table) { this.table = table; }
     public Table(String table, Keyword keyword) { this.table = table; this.keyword = keyword; }
 
@@ -77,6 +175,29 @@ public class Table {
     public Table engine(String engine) { this.engine = engine; return this; }
     public Table charset(String charset) { this.charset = charset; return this; }
     public Table comment(String comment) { this.comment = comment; return this; }
+    public Table renderListener(RenderListener renderListener) { this.renderListener = renderListener; return this; }
+    public Table inlineTimestamps(boolean enable) { this.inlineTimestamps = enable; return this; }
+    public Table truncateStrategy(Truncate truncate) { this.truncate = truncate; return this; }
+    public Table truncateStrategy(Truncate truncate, long vacuumPages) { this.truncate = truncate; this.vacuumPages = Math.max(0, vacuumPages); return this; }
+
+    public Table copy(Keyword keyword) {    // the same definition as another statement, e.g. TRUNCATE or DROP; columns and indexes are shared
+        Table table = new Table(this.table, keyword);
+        table.dialect = dialect;
+        table.overwrite = overwrite;
+        table.columns = columns;
+        table.foreignkeys = foreignkeys;
+        table.references = references;
+        table.indexes = indexes;
+        table.indexForeignKeys = indexForeignKeys;
+        table.engine = engine;
+        table.charset = charset;
+        table.comment = comment;
+        table.inlineTimestamps = inlineTimestamps;
+        table.truncate = truncate;
+        table.vacuumPages = vacuumPages;
+        table.renderListener = renderListener;
+        return table;
+    }
 
     public Column column(String name) {
         if(columns==null) columns = new ArrayList<>();
@@ -90,6 +211,23 @@ public class Table {
         columns.add(column);
         return this;
     }
+    public Index index(String... columns) {
+        if(indexes==null) indexes = new ArrayList<>();
+        Index index = new Index();
+        index.table = this;
+        for (String column : columns) index.column(column);
+        indexes.add(index);
+        return index;
+    }
+    public Table index(Index index) {
+        if(indexes==null) indexes = new ArrayList<>();
+        index.table = this;
+        indexes.add(index);
+        return this;
+    }
+    public Table indexForeignKeys() { return indexForeignKeys(true); }    // index every referencesTo() column not leading an index yet
+    public Table indexForeignKeys(boolean enable) { indexForeignKeys = enable; return this; }
+
     public Column add(String name) {
         if(columns==null) columns = new ArrayList<>();
         Column column = new Column(name, this);
@@ -98,117 +236,293 @@ public class Table {
     }
 
     public String end() {
-        StringBuilder sb = new StringBuilder();
-        ArrayList<String> triggers = new ArrayList<>();    // create trigger for SQLite TIMESTAMP fields
-        ArrayList<String> cols;
+        if(renderListener==null) return render();
+
+        long start = System.nanoTime();
+        String sql = render();
+        renderListener.onRender(keyword, sql, System.nanoTime() - start);
+        return sql;
+    }
+
+    public Frozen freeze() { return new Frozen(table, dialect, keyword, end()); }    // immutable, thread-safe snapshot
+
+    public Appendable end(Appendable out) throws IOException {  // render straight into a caller-owned (reusable) buffer
+        if(!isRenderable()) return null;
+        if(renderListener==null && out instanceof StringBuilder) {
+            StringBuilder sb = (StringBuilder) out;
+            sb.ensureCapacity(sb.length() + estimateLength());
+            render(sb);
+            return sb;
+        }
+        return out.append(end());
+    }
+
+    public String getTable() { return table; }
+    public Dialect getDialect() { return dialect; }
+    public Keyword getKeyword() { return keyword; }
+    public List<String> getReferencedTables() {     // in referencesTo() order, may repeat or name this table
+        return references==null ? new ArrayList<>() : new ArrayList<>(references);
+    }
+    public List<String> getUpdateSetCurrentColumns() {
+        ArrayList<String> names = new ArrayList<>();
+        if(columns!=null) for (Column col : columns) if(col.isUpdateSetCurrent) names.add(col.name);
+        return names;
+    }
+
+    boolean isRenderable() {    // RECREATE needs the column definitions, MySQL has no partial index
+        if(keyword==Keyword.TRUNCATE && dialect==Dialect.SQLITE && truncate==Truncate.RECREATE && columns==null) return false;
+        if(dialect==Dialect.MYSQL && keyword!=Keyword.DROP && keyword!=Keyword.TRUNCATE) {
+            if(indexes!=null) for (Index index : indexes) if(index.where!=null) return false;   // a full index would reject rows it meant to allow
+        }
+        return true;
+    }
+
+    private String render() {
+        if(!isRenderable()) return null;
+        StringBuilder sb = new StringBuilder(estimateLength());
+        render(sb);
+        return sb.toString();
+    }
+
+    private void render(StringBuilder sb) {
         switch (keyword) {
             case CREATE:
-                if(overwrite) sb.append(String.format("CREATE OR REPLACE TABLE %s (", table));
-                else sb.append(String.format("CREATE TABLE IF NOT EXISTS %s (", table));
-                cols = new ArrayList<>();
-                // column def
-                for (Column col : columns) cols.add(buildColumn(col, triggers));
-                // table FK constraint
-                if(foreignkeys!=null) cols.addAll(foreignkeys);
-                sb.append(String.join(", ", cols));
-                sb.append(")");
-                if(dialect == Dialect.MYSQL) {
-                    if(engine!=null) sb.append(String.format(" ENGINE=%s", engine));
-                    if(charset!=null) sb.append(String.format(" DEFAULT CHARSET=%s", charset));
-                    if(comment!=null) sb.append(String.format(" COMMENT='%s'", comment));
-                }
-                sb.append(";");
-                for (String col : triggers) {
-                    sb.append(String.format(" CREATE TRIGGER update_%s_%s AFTER UPDATE ON %s" +
-                            " FOR EACH ROW WHEN NEW.%s <= OLD.%s BEGIN" +
-                            " UPDATE %s SET %s = CURRENT_TIMESTAMP WHERE %s = OLD.%s;" +
-                            " END;", table, col, table, col, col, table, col, col, col));
-                }
+                if(isAutoVacuum()) sb.append("PRAGMA auto_vacuum = INCREMENTAL; ");   // before the first table
+                buildCreate(sb, false);
                 break;
             case ALTER:
-                sb.append(String.format("ALTER TABLE %s ADD ", table));
-                cols = new ArrayList<>();
-                for (Column col : columns) cols.add(buildColumn(col, triggers));
-                sb.append(String.join(", ", cols));
-                sb.append(";");
-                for (String col : triggers) {
-                    sb.append(String.format(" CREATE TRIGGER update_%s_%s AFTER UPDATE ON %s" +
-                            " FOR EACH ROW WHEN NEW.%s <= OLD.%s BEGIN" +
-                            " UPDATE %s SET %s = CURRENT_TIMESTAMP WHERE %s = OLD.%s;" +
-                            " END;", table, col, table, col, col, table, col, col, col));
+            case INDEX:
+                int mark = sb.length();
+                if(columns!=null) {
+                    sb.append("ALTER TABLE ").append(table).append(" ADD ");
+                    for (int i = 0; i < columns.size(); i++) {
+                        if(i!=0) sb.append(", ");
+                        buildColumn(sb, columns.get(i));
+                    }
+                    sb.append(';');
                 }
+                buildIndexes(sb);
+                buildTriggers(sb);
+                if(sb.length()!=mark && sb.charAt(mark)==' ') sb.deleteCharAt(mark);   // indexes only
                 break;
             case DROP:
-                sb.append(String.format("DROP TABLE IF EXISTS %s;", table));
+                if(indexes==null) {
+                    sb.append("DROP TABLE IF EXISTS ").append(table).append(';');
+                    break;
+                }
+                for (int i = 0; i < indexes.size(); i++) {
+                    if(i!=0) sb.append(' ');
+                    if(dialect == Dialect.MYSQL) sb.append("DROP INDEX ").append(indexes.get(i).nameOn(table)).append(" ON ").append(table).append(';');
+                    else sb.append("DROP INDEX IF EXISTS ").append(indexes.get(i).nameOn(table)).append(';');
+                }
                 break;
             case TRUNCATE:
                 switch (dialect) {
                     case MYSQL:
-                        sb.append(String.format("TRUNCATE TABLE %s;", table));
+                        sb.append("TRUNCATE TABLE ").append(table).append(';');
                         break;
                     case SQLITE:
-                        sb.append(String.format("BEGIN;" +
-                                " DELETE FROM %s;" +
-                                " UPDATE sqlite_sequence SET seq = 0 WHERE name = '%s';" +
-                                " COMMIT;" +
-                                " VACUUM %s; ", table, table, table));
+                        sb.append("BEGIN;");
+                        if(truncate == Truncate.RECREATE) {     // dropping the table also drops its sqlite_sequence row
+                            sb.append(" DROP TABLE IF EXISTS ").append(table).append("; ");
+                            buildCreate(sb, false);
+                            sb.append(" COMMIT;");
+                            break;
+                        }
+                        sb.append(" DELETE FROM ").append(table).append(';')
+                          .append(" UPDATE sqlite_sequence SET seq = 0 WHERE name = '").append(table).append("';")
+                          .append(" COMMIT;");
+                        if(truncate == Truncate.VACUUM) sb.append(" VACUUM;");
+                        else if(truncate == Truncate.INCREMENTAL) {
+                            sb.append(" PRAGMA incremental_vacuum");
+                            if(vacuumPages!=0) sb.append('(').append(vacuumPages).append(')');
+                            sb.append(';');
+                        }
                 }
                 break;
         }
+    }
+
+    // Schema.create(): end() without the PRAGMA auto_vacuum in front, which has no place in a transaction
+    String renderCreate() {
+        StringBuilder sb = new StringBuilder(estimateLength());
+        buildCreate(sb, false);
         return sb.toString();
     }
+    boolean isAutoVacuum() { return dialect == Dialect.SQLITE && truncate == Truncate.INCREMENTAL; }   // CREATE sets auto_vacuum
+
+    // Schema's bulk load, see Schema.createBare() and Schema.finish(): the table alone, then what slows down its load
+    String renderBare() {
+        StringBuilder sb = new StringBuilder(estimateLength());
+        buildCreate(sb, true);
+        return sb.toString();
+    }
+    String renderIndexes() {    // the UNIQUE columns renderBare() left out, then the declared and foreign key indexes
+        StringBuilder sb = new StringBuilder();
+        if(columns!=null) for (Column col : columns) {
+            if(!col.isUnique || col.isPrimaryKey) continue;
+            Index index = new Index().unique().column(col.name);
+            index.table = this;
+            buildIndex(sb.append(' '), index, false);
+            sb.append(';');
+        }
+        buildIndexes(sb);
+        return sb.length()==0 ? sb.toString() : sb.substring(1);
+    }
+    String renderForeignKeys() {    // MySQL only, SQLite cannot add them to an existing table and keeps them in renderBare()
+        StringBuilder sb = new StringBuilder();
+        if(dialect == Dialect.MYSQL && foreignkeys!=null) for (String foreignkey : foreignkeys) {
+            if(sb.length()!=0) sb.append(' ');
+            sb.append("ALTER TABLE ").append(table).append(" ADD ").append(foreignkey).append(';');
+        }
+        return sb.toString();
+    }
+    String renderTriggers() {
+        StringBuilder sb = new StringBuilder();
+        buildTriggers(sb);
+        return sb.length()==0 ? sb.toString() : sb.substring(1);
+    }
 
-    private String buildColumn(Column col, ArrayList<String> triggers) {
-        ArrayList<String> segs = new ArrayList<>();
+    private void buildCreate(StringBuilder sb, boolean bare) {
+        if(overwrite) sb.append("CREATE OR REPLACE TABLE ").append(table).append(" (");
+        else sb.append("CREATE TABLE IF NOT EXISTS ").append(table).append(" (");
+        // column def
+        for (int i = 0; i < columns.size(); i++) {
+            if(i!=0) sb.append(", ");
+            buildColumn(sb, columns.get(i), bare);
+        }
+        // table FK constraint, declarative in SQLite until PRAGMA foreign_keys = ON
+        if(foreignkeys!=null && (!bare || dialect != Dialect.MYSQL)) for (String foreignkey : foreignkeys) sb.append(", ").append(foreignkey);
+        // MySQL declares indexes inline, SQLite needs CREATE INDEX statements (see buildIndexes)
+        if(dialect == Dialect.MYSQL && !bare) for (Index index : allIndexes()) buildIndex(sb.append(", "), index, true);
+        sb.append(')');
+        if(dialect == Dialect.MYSQL) {
+            if(engine!=null) sb.append(" ENGINE=").append(engine);
+            if(charset!=null) sb.append(" DEFAULT CHARSET=").append(charset);
+            if(comment!=null) sb.append(" COMMENT='").append(comment).append('\'');
+        }
+        sb.append(';');
+        if(bare) return;
+        if(dialect != Dialect.MYSQL) buildIndexes(sb);
+        buildTriggers(sb);
+    }
+
+    private ArrayList<Index> allIndexes() {   // declared ones, then the foreign key ones asked for by indexForeignKeys()
+        ArrayList<Index> all = indexes==null ? new ArrayList<>() : new ArrayList<>(indexes);
+        if(indexForeignKeys && columns!=null) for (Column col : columns) {
+            if(!col.referencesTo || col.isPrimaryKey || col.isUnique) continue;
+            boolean covered = false;
+            for (Index index : all) if(!index.keys.isEmpty() && index.keys.get(0).equals(col.name)) covered = true;
+            if(covered) continue;
+            Index index = new Index();
+            index.table = this;
+            all.add(index.column(col.name));
+        }
+        return all;
+    }
+    private void buildIndexes(StringBuilder sb) {
+        for (Index index : allIndexes()) {
+            sb.append(' ');
+            buildIndex(sb, index, false);
+            sb.append(';');
+        }
+    }
+    private void buildIndex(StringBuilder sb, Index index, boolean inline) {
+        boolean mysql = dialect == Dialect.MYSQL;
+        String kind = mysql && index.using!=null && (index.using.equals("FULLTEXT") || index.using.equals("SPATIAL")) ? index.using : null;
+        if(!inline) sb.append("CREATE ");
+        if(kind!=null) sb.append(kind).append(' ');
+        else if(index.isUnique) sb.append("UNIQUE ");
+        sb.append("INDEX ");
+        if(!inline && !mysql) sb.append("IF NOT EXISTS ");
+        sb.append(index.nameOn(table));
+        if(!inline) sb.append(" ON ").append(table);
+        else sb.append(' ');
+        sb.append('(');
+        for (int i = 0; i < index.keys.size(); i++) {
+            if(i!=0) sb.append(", ");
+            sb.append(index.keys.get(i));
+            if(mysql && index.prefixes.get(i) > 0) sb.append('(').append(index.prefixes.get(i).intValue()).append(')');
+            if(index.reverses.get(i)) sb.append(" DESC");
+        }
+        sb.append(')');
+        if(mysql && kind==null && index.using!=null) sb.append(" USING ").append(index.using);
+        if(!mysql && index.where!=null) sb.append(" WHERE ").append(index.where);
+    }
+
+    private void buildTriggers(StringBuilder sb) {  // create trigger for SQLite TIMESTAMP fields
+        if(dialect != Dialect.SQLITE || columns==null || inlineTimestamps) return;
+        String key = "rowid";   // the row just updated, found by its key instead of scanning for the old timestamp
+        for (Column col : columns) if(col.isPrimaryKey) key = col.name;
+        for (Column col : columns) {
+            if(!col.isUpdateSetCurrent) continue;
+            sb.append(" CREATE TRIGGER update_").append(table).append('_').append(col.name)
+              .append(" AFTER UPDATE ON ").append(table)
+              .append(" FOR EACH ROW WHEN NEW.").append(col.name).append(" <= OLD.").append(col.name).append(" BEGIN")
+              .append(" UPDATE ").append(table).append(" SET ").append(col.name).append(" = CURRENT_TIMESTAMP")
+              .append(" WHERE ").append(key).append(" = NEW.").append(key).append(';')
+              .append(" END;");
+        }
+    }
+
+    private int estimateLength() {  // pre-size the output buffer so that it never has to grow while rendering
+        int length = 64 + 3 * table.length();
+        if(columns!=null) for (Column col : columns) {
+            length += col.name.length() + (col.type==null ? 8 : col.type.length()) + 48;
+            if(col.isUpdateSetCurrent) length += 160 + 3 * table.length() + 6 * col.name.length();
+        }
+        if(foreignkeys!=null) for (String foreignkey : foreignkeys) length += foreignkey.length() + 2;
+        if(indexes!=null) for (Index index : indexes) {
+            length += 48 + 2 * table.length() + length(index.name) + length(index.where);
+            for (String key : index.keys) length += 2 * key.length() + 8;
+        }
+        if(indexForeignKeys && foreignkeys!=null) length += foreignkeys.size() * (48 + 2 * table.length());
+        if(engine!=null) length += engine.length() + 8;
+        if(charset!=null) length += charset.length() + 16;
+        if(comment!=null) length += comment.length() + 12;
+        return length;
+    }
+
+    private static int length(String str) { return str==null ? 4 : str.length(); }
+
+    private void buildColumn(StringBuilder sb, Column col) { buildColumn(sb, col, false); }
+    private void buildColumn(StringBuilder sb, Column col, boolean bare) {     // bare: UNIQUE left to renderIndexes()
         // Name
-        segs.add(col.name);
+        sb.append(col.name);
         // Type
+        sb.append(' ');
         if(col.isInitSetCurrent || col.isUpdateSetCurrent) {
-            segs.add("TIMESTAMP");
+            sb.append("TIMESTAMP");
         } else if(col.isAutoincrement || (col.type==null && col.referencesTo)) {
-            if(dialect == Dialect.MYSQL) segs.add("INT");
-            else segs.add("INTEGER");
+            sb.append(dialect == Dialect.MYSQL ? "INT" : "INTEGER");
         } else if(col.type==null && col.defaultValue!=null) {
             if(col.defaultValue instanceof Integer || col.defaultValue instanceof Short || col.defaultValue instanceof Long) {
-                if(dialect == Dialect.MYSQL) segs.add("INT");
-                else segs.add("INTEGER");
+                sb.append(dialect == Dialect.MYSQL ? "INT" : "INTEGER");
             } else if(col.defaultValue instanceof Double || col.defaultValue instanceof Float) {
-                segs.add("FLOAT");
-            } else segs.add("VARCHAR");
+                sb.append("FLOAT");
+            } else sb.append("VARCHAR");
         } else if(col.type!=null) {
             String t = col.type.trim().toUpperCase();
-            if(dialect==Dialect.SQLITE && t.equalsIgnoreCase("INT")) segs.add("INTEGER");
-            else segs.add(t);
-        } else segs.add("VARCHAR");
+            if(dialect==Dialect.SQLITE && t.equalsIgnoreCase("INT")) sb.append("INTEGER");
+            else sb.append(t);
+        } else sb.append("VARCHAR");
         // PK + AI
-        if(col.isPrimaryKey) segs.add("PRIMARY KEY");
+        if(col.isPrimaryKey) sb.append(" PRIMARY KEY");
         // AI
-        if(col.isAutoincrement) {
-            if(dialect == Dialect.MYSQL) segs.add("AUTO_INCREMENT");
-            else segs.add("AUTOINCREMENT");
-        }
+        if(col.isAutoincrement) sb.append(dialect == Dialect.MYSQL ? " AUTO_INCREMENT" : " AUTOINCREMENT");
         // UQ
-        if(col.isUnique) segs.add("UNIQUE");
+        if(col.isUnique && (!bare || col.isPrimaryKey)) sb.append(" UNIQUE");
         // NN
-        if(col.isNotNull) segs.add("NOT NULL");
-        else if(!col.isPrimaryKey && !col.isInitSetCurrent && col.defaultValue==null) segs.add("NULL");
-        // CT/OUCT for Timestamp
-        switch (dialect) {
-            case SQLITE:
-                if(col.isInitSetCurrent) segs.add("DEFAULT CURRENT_TIMESTAMP");
-                if(col.isUpdateSetCurrent) triggers.add(col.name);
-                break;
-            case MYSQL:
-                if(col.isInitSetCurrent) segs.add("DEFAULT CURRENT_TIMESTAMP");
-                if(col.isUpdateSetCurrent) segs.add("ON UPDATE CURRENT_TIMESTAMP");
-                break;
-        }
+        if(col.isNotNull) sb.append(" NOT NULL");
+        else if(!col.isPrimaryKey && !col.isInitSetCurrent && col.defaultValue==null) sb.append(" NULL");
+        // CT/OUCT for Timestamp, SQLite gets a trigger instead of OUCT (see buildTriggers)
+        if(col.isInitSetCurrent) sb.append(" DEFAULT CURRENT_TIMESTAMP");
+        if(col.isUpdateSetCurrent && dialect == Dialect.MYSQL) sb.append(" ON UPDATE CURRENT_TIMESTAMP");
         // DEFAULT
         if(col.defaultValue!=null) {
-            if(col.defaultValue instanceof Number) segs.add(String.format("DEFAULT %s", col.defaultValue));
-            else segs.add(String.format("DEFAULT '%s'", col.defaultValue));
+            if(col.defaultValue instanceof Number) sb.append(" DEFAULT ").append(col.defaultValue);
+            else ValueEncoder.quote(sb.append(" DEFAULT "), col.defaultValue.toString(), dialect);
         }
-        return String.join(" ", segs);
     }
 
 }
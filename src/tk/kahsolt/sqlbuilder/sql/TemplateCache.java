@@ -0,0 +1,80 @@
+package tk.kahsolt.sqlbuilder.sql;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Rendered SQL by query shape, shared by the queries of one SQLBuilder.
+// Bounded, evicts with CLOCK (second chance), an LRU approximation whose hits never take a lock.
+public class TemplateCache {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final class Template {
+        final String sql;
+        volatile boolean used;      // set by a hit, cleared as the clock hand passes
+        Template(String sql) { this.sql = sql; }
+    }
+
+    private final int capacity;
+    private final ConcurrentHashMap<Object, Template> templates;    // shape -> rendered sql
+    private Iterator<Map.Entry<Object, Template>> hand;             // clock hand, guarded by this
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TemplateCache() { this(DEFAULT_CAPACITY); }
+    public TemplateCache(int capacity) {
+        if(capacity <= 0) throw new IllegalArgumentException("capacity must be positive");
+        this.capacity = capacity;
+        this.templates = new ConcurrentHashMap<>(Math.min(capacity, 1 << 16));
+    }
+
+    public String get(Object shape) {
+        Template template = templates.get(shape);
+        if(template==null) {
+            misses.increment();
+            return null;
+        }
+        if(!template.used) template.used = true;    // no write, so no cache line bouncing, once it is hot
+        hits.increment();
+        return template.sql;
+    }
+    public void put(Object shape, String sql) {
+        if(shape==null || sql==null) return;
+        if(templates.putIfAbsent(shape, new Template(sql))==null && templates.size() > capacity) evict();
+    }
+    public synchronized void clear() {
+        templates.clear();
+        hand = null;
+    }
+
+    private synchronized void evict() {
+        while (templates.size() > capacity) {
+            if(hand==null || !hand.hasNext()) hand = templates.entrySet().iterator();
+            if(!hand.hasNext()) return;
+            Map.Entry<Object, Template> entry = hand.next();
+            if(entry.getValue().used) entry.getValue().used = false;
+            else if(templates.remove(entry.getKey(), entry.getValue())) evictions.increment();
+        }
+    }
+
+    public int capacity() { return capacity; }
+    public int size() { return templates.size(); }
+    public long hits() { return hits.sum(); }
+    public long misses() { return misses.sum(); }
+    public long evictions() { return evictions.sum(); }
+    public double hitRate() {
+        long h = hits.sum(), total = h + misses.sum();
+        return total==0 ? 0.0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TemplateCache(size=%d/%d, hits=%d, misses=%d, evictions=%d)",
+                size(), capacity, hits(), misses(), evictions());
+    }
+
+}
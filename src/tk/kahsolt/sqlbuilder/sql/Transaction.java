@@ -1,26 +1,181 @@
 package tk.kahsolt.sqlbuilder.sql;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 
 public class Transaction {
 
+    private static final int[] BUSY_CODES = {5, 6, 261, 262, 517, 518, 773};   // SQLITE_BUSY, SQLITE_LOCKED and their extended codes
+
     private ArrayList<String> blocks;
+    private List<String> statements;            // blocks split by Script.split(), built on demand
+    private int[] owners;                       // statement index => block index
+    private boolean multiStatement = false;     // send all blocks as one string, MySQL with allowMultiQueries=true
+    private int busyRetries = 0;                // SQLite: reruns after SQLITE_BUSY/SQLITE_LOCKED
+    private long busyBackoffMillis = 10;        // doubled per retry, with jitter
 
     public Transaction() { }
 
-    public Transaction block(String block) {
+    public Transaction block(String block) {    // not one that starts or ends a transaction itself, run that on its own
+        String control = Script.transactionControl(block);
+        if(control!=null) throw new IllegalArgumentException("cannot run in a transaction: " + control);
         if(blocks==null) blocks = new ArrayList<>();
+        statements = null;
+        owners = null;
         String blk = block.trim();
         if(blk.endsWith(";"))
-            blocks.add(block.substring(0, blk.length()-1));
+            blocks.add(blk.substring(0, blk.length()-1));
         else
             blocks.add(block);
         return this;
     }
+    public Transaction multiStatement(boolean multiStatement) { this.multiStatement = multiStatement; return this; }
+    public Transaction retryOnBusy(int retries, long backoffMillis) {
+        this.busyRetries = Math.max(0, retries);
+        this.busyBackoffMillis = Math.max(1, backoffMillis);
+        return this;
+    }
+
+    public List<String> getBlocks() {   // the statements without their terminal ';', in order
+        return blocks==null ? Collections.emptyList() : Collections.unmodifiableList(blocks);
+    }
+    public List<String> getStatements() {   // the blocks split into single statements, e.g. a Table.end() block gives several
+        if(statements==null) split();
+        return statements;
+    }
+    public int[] byBlock(int[] counts) {    // update counts of getStatements() => one per block, as execute() returns them
+        if(statements==null) split();
+        int[] updateCounts = new int[getBlocks().size()];
+        Arrays.fill(updateCounts, Statement.SUCCESS_NO_INFO);
+        for (int i = 0; i < counts.length; i++) {
+            if(counts[i] < 0) continue;
+            int block = owners[i];
+            updateCounts[block] = updateCounts[block] < 0 ? counts[i] : updateCounts[block] + counts[i];
+        }
+        return updateCounts;
+    }
+    private void split() {
+        List<String> blocks = getBlocks();
+        ArrayList<String> statements = new ArrayList<>(blocks.size());
+        ArrayList<Integer> owners = new ArrayList<>(blocks.size());
+        for (int i = 0; i < blocks.size(); i++) {
+            for (String sql : Script.split(blocks.get(i))) {
+                statements.add(sql);
+                owners.add(i);
+            }
+        }
+        this.owners = new int[owners.size()];
+        for (int i = 0; i < this.owners.length; i++) this.owners[i] = owners.get(i);
+        this.statements = Collections.unmodifiableList(statements);
+    }
 
     public String commit() {
         String blks = String.join("; ", blocks);
         return String.format("BEGIN; %s; COMMIT;", blks);
     }
 
+    // Runs the blocks in one transaction: as one Statement batch (one round trip where the driver supports it),
+    // or as one multi-statement string. A block may hold several statements, e.g. a Table.end(). Returns one update
+    // count per block, the sum of its statements', or Statement.SUCCESS_NO_INFO when the driver did not tell.
+    // Retries on SQLITE_BUSY only when it owns the transaction, i.e. the connection was in autocommit.
+    public int[] execute(Connection connection) throws SQLException { return execute(connection, null); }
+    public int[] execute(Connection connection, Consumer<Statement> started) throws SQLException {  // started sees the Statement of each attempt before it runs
+        int retries = connection.getAutoCommit() ? busyRetries : 0;
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return executeOnce(connection, started);
+            } catch (SQLException e) {
+                if(attempt >= retries || !isBusy(e)) throw e;
+                try {
+                    long backoff = busyBackoffMillis << Math.min(attempt, 16);
+                    Thread.sleep(backoff + ThreadLocalRandom.current().nextLong(backoff));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private int[] executeOnce(Connection connection, Consumer<Statement> started) throws SQLException {
+        List<String> statements = getStatements();
+        boolean autoCommit = connection.getAutoCommit();
+        if(autoCommit) connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            if(started!=null) started.accept(statement);
+            int[] counts = multiStatement ? executeMulti(statement, statements) : executeBatch(statement, statements);
+            connection.commit();
+            return byBlock(counts);
+        } catch (SQLException | RuntimeException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        } finally {
+            if(autoCommit) connection.setAutoCommit(true);
+        }
+    }
+
+    private static int[] executeBatch(Statement statement, List<String> statements) throws SQLException {
+        int[] counts = new int[statements.size()];
+        int from = 0;   // first statement of the pending batch
+        for (int i = 0; i <= statements.size(); i++) {
+            boolean query = i < statements.size() && returnsRows(statements.get(i));
+            if(i < statements.size() && !query) {
+                statement.addBatch(statements.get(i));
+                continue;
+            }
+            if(i > from) {      // flush what is batched so far
+                int[] batch = statement.executeBatch();
+                System.arraycopy(batch, 0, counts, from, Math.min(batch.length, i - from));
+            }
+            if(query) {         // a batch cannot return rows, run it alone
+                statement.execute(statements.get(i));
+                counts[i] = Statement.SUCCESS_NO_INFO;
+            }
+            from = i + 1;
+        }
+        return counts;
+    }
+
+    private static int[] executeMulti(Statement statement, List<String> statements) throws SQLException {
+        int[] counts = new int[statements.size()];
+        Arrays.fill(counts, Statement.SUCCESS_NO_INFO);
+        boolean results = statement.execute(String.join("; ", statements));
+        for (int i = 0; i < counts.length; i++) {
+            int count = results ? -1 : statement.getUpdateCount();
+            if(!results && count == -1) break;  // no more results
+            if(count >= 0) counts[i] = count;
+            results = statement.getMoreResults();
+        }
+        return counts;
+    }
+
+    private static boolean returnsRows(String sql) {
+        int from = 0;
+        while (from < sql.length() && (sql.charAt(from) <= ' ' || sql.charAt(from) == '(')) from++;
+        return sql.regionMatches(true, from, "SELECT", 0, 6) || sql.regionMatches(true, from, "VALUES", 0, 6)
+                || sql.regionMatches(true, from, "EXPLAIN", 0, 7) || sql.regionMatches(true, from, "SHOW", 0, 4);
+    }
+
+    private static boolean isBusy(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if(!(t instanceof SQLException)) continue;
+            int code = ((SQLException) t).getErrorCode();
+            for (int busy : BUSY_CODES) if(code == busy) return true;
+            String message = String.valueOf(t.getMessage());
+            if(message.contains("SQLITE_BUSY") || message.contains("SQLITE_LOCKED") || message.contains("database is locked")) return true;
+        }
+        return false;
+    }
+
 }
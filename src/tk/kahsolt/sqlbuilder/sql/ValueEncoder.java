@@ -0,0 +1,111 @@
+package tk.kahsolt.sqlbuilder.sql;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class ValueEncoder {
+
+    public interface Encoder {
+        void encode(StringBuilder sb, Object value);
+    }
+
+    // explicit marker for a SQL fragment that must be written as is, e.g. raw("CURRENT_TIMESTAMP")
+    public static final class Raw {
+        private final String sql;
+        private Raw(String sql) { this.sql = sql; }
+        @Override
+        public String toString() { return sql; }
+    }
+    public static Raw raw(String sql) { return new Raw(sql); }
+
+    private static final Encoder NUMBER = (sb, value) -> sb.append(value.toString());
+    private static final Encoder INTEGRAL = (sb, value) -> sb.append(((Number) value).longValue());
+    private static final Encoder BOOLEAN = (sb, value) -> sb.append((Boolean) value ? '1' : '0');
+    private static final Encoder RAW = (sb, value) -> sb.append(((Raw) value).sql);
+    private static final Encoder QUERY = (sb, value) -> subquery(sb, ((Query) value).end());
+    private static final Encoder FROZEN = (sb, value) -> subquery(sb, ((Query.Frozen) value).end());
+    private static final Encoder STRING = (sb, value) -> quote(sb, value.toString(), Dialect.SQLITE);
+
+    private static final Map<Class<?>, Encoder> ENCODERS = new ConcurrentHashMap<>();   // type dispatch table
+    static {
+        ENCODERS.put(Integer.class, INTEGRAL);
+        ENCODERS.put(Long.class, INTEGRAL);
+        ENCODERS.put(Short.class, INTEGRAL);
+        ENCODERS.put(Byte.class, INTEGRAL);
+        ENCODERS.put(Double.class, NUMBER);
+        ENCODERS.put(Float.class, NUMBER);
+        ENCODERS.put(BigDecimal.class, NUMBER);
+        ENCODERS.put(BigInteger.class, NUMBER);
+        ENCODERS.put(Boolean.class, BOOLEAN);
+        ENCODERS.put(String.class, STRING);
+        ENCODERS.put(Raw.class, RAW);
+        ENCODERS.put(Query.class, QUERY);
+        ENCODERS.put(Query.Frozen.class, FROZEN);
+    }
+
+    private ValueEncoder() { }
+
+    public static void register(Class<?> type, Encoder encoder) { ENCODERS.put(type, encoder); }
+
+    public static String encode(Object value) { return encode(value, Dialect.SQLITE); }
+    public static String encode(Object value, Dialect dialect) {
+        if(value==null) return "NULL";
+        if(value instanceof Boolean) return (Boolean) value ? "1" : "0";
+        if(value instanceof Integer || value instanceof Long) return value.toString();
+        StringBuilder sb = new StringBuilder(16);
+        encode(sb, value, dialect);
+        return sb.toString();
+    }
+    public static StringBuilder encode(StringBuilder sb, Object value) { return encode(sb, value, Dialect.SQLITE); }
+    public static StringBuilder encode(StringBuilder sb, Object value, Dialect dialect) {
+        if(value==null) return sb.append("NULL");
+        Encoder encoder = encoderOf(value.getClass());
+        if(encoder==STRING) quote(sb, value.toString(), dialect);     // as given, like the bound value
+        else encoder.encode(sb, value);
+        return sb;
+    }
+    public static StringBuilder encode(StringBuilder sb, long value) { return sb.append(value); }
+    public static StringBuilder encode(StringBuilder sb, double value) { return sb.append(value); }
+    public static StringBuilder encode(StringBuilder sb, boolean value) { return sb.append(value ? '1' : '0'); }
+
+    private static Encoder encoderOf(Class<?> type) {
+        Encoder encoder = ENCODERS.get(type);
+        if(encoder==null) {     // resolve a subclass once, then it is a table hit too
+            if(Number.class.isAssignableFrom(type)) encoder = NUMBER;
+            else if(Query.class.isAssignableFrom(type)) encoder = QUERY;
+            else encoder = STRING;
+            ENCODERS.putIfAbsent(type, encoder);
+        }
+        return encoder;
+    }
+
+    // Strings are always quoted, whitespace and ';' included. SQL goes in as a Query, a Frozen or raw().
+    static boolean isSqlFragment(Object value) {    // values encode() writes as SQL rather than as a literal
+        return value instanceof Raw || value instanceof Query || value instanceof Query.Frozen;
+    }
+
+    public static StringBuilder quote(StringBuilder sb, CharSequence str) { return quote(sb, str, 0, str.length(), Dialect.SQLITE); }
+    public static StringBuilder quote(StringBuilder sb, CharSequence str, Dialect dialect) { return quote(sb, str, 0, str.length(), dialect); }
+    // 'it''s', single pass; MySQL also reads '\' as an escape (unless sql_mode has NO_BACKSLASH_ESCAPES), so 'x\\'
+    public static StringBuilder quote(StringBuilder sb, CharSequence str, int from, int to, Dialect dialect) {
+        boolean backslash = dialect==Dialect.MYSQL;
+        sb.append('\'');
+        int start = from;
+        for (int i = from; i < to; i++) {
+            char c = str.charAt(i);
+            if(c == '\'' || c == '\\' && backslash) {
+                sb.append(str, start, i + 1).append(c);
+                start = i + 1;
+            }
+        }
+        return sb.append(str, start, to).append('\'');
+    }
+
+    static void subquery(StringBuilder sb, String sql) {  // a rendered SELECT as an operand: "(SELECT ...)" or "ANY(SELECT ...)"
+        if(sql.endsWith(";")) sb.append('(').append(sql, 0, sql.length() - 1).append(')');
+        else sb.append(sql);
+    }
+
+}
@@ -0,0 +1,57 @@
+package tk.kahsolt.sqlbuilder;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+// The few assertions the tests under test/ need, they run without a framework:
+//   javac -encoding UTF-8 -d out $(find src test -name '*.java')
+//   java -cp out tk.kahsolt.sqlbuilder.sql.QueryTest
+public final class Check {
+
+    public interface Body {
+        void run() throws Exception;
+    }
+
+    private static int failures = 0;
+
+    private Check() { }
+
+    public static void test(String name, Body body) {
+        try {
+            body.run();
+            System.out.println("ok   " + name);
+        } catch (Throwable e) {
+            failures++;
+            System.out.println("FAIL " + name + ": " + e);
+        }
+    }
+    public static void done() {     // exit status 1 when a test failed
+        if(failures!=0) {
+            System.out.println(failures + " failed");
+            System.exit(1);
+        }
+    }
+
+    public static void equal(Object expected, Object actual) {
+        boolean same = expected instanceof Object[] && actual instanceof Object[]
+                ? Arrays.deepEquals((Object[]) expected, (Object[]) actual) : Objects.equals(expected, actual);
+        if(!same) throw new AssertionError("expected <" + show(expected) + "> but was <" + show(actual) + ">");
+    }
+    public static void that(boolean condition, String message) {
+        if(!condition) throw new AssertionError(message);
+    }
+    public static <T extends Throwable> T fails(Class<T> type, Body body) {
+        try {
+            body.run();
+        } catch (Throwable e) {
+            if(type.isInstance(e)) return type.cast(e);
+            throw new AssertionError("expected " + type.getSimpleName() + " but got " + e, e);
+        }
+        throw new AssertionError("expected " + type.getSimpleName());
+    }
+
+    private static String show(Object value) {
+        return value instanceof Object[] ? Arrays.deepToString((Object[]) value) : String.valueOf(value);
+    }
+
+}
@@ -0,0 +1,32 @@
+package tk.kahsolt.sqlbuilder;
+
+import static tk.kahsolt.sqlbuilder.Check.*;
+
+public class SQLBuilderTest {
+
+    public static void main(String[] args) {
+        test("inline timestamps follow the latest CREATE only", () -> {
+            SQLBuilder sqlBuilder = new SQLBuilder().enableInlineTimestamps();
+            sqlBuilder.createTable("Message").column("id").autoIncrement().end().column("updated").updateSetCurrent().end().end();
+            sqlBuilder.createIndex("Message", "updated").end();
+            sqlBuilder.truncateTable("Message").end();
+            sqlBuilder.createTable("Message").column("id").autoIncrement().end().column("updated").updateSetCurrent().end().end();
+            equal("UPDATE Message SET likes = 1, updated = CURRENT_TIMESTAMP WHERE id = 1;",
+                    sqlBuilder.update("Message").set("likes", 1).where("id").eq(1).end());
+        });
+        test("a redefinition without the timestamp drops it", () -> {
+            SQLBuilder sqlBuilder = new SQLBuilder().enableInlineTimestamps();
+            sqlBuilder.createTable("Message").column("id").autoIncrement().end().column("updated").updateSetCurrent().end().end();
+            sqlBuilder.createTable("Message").column("id").autoIncrement().end().end();
+            equal("UPDATE Message SET likes = 1 WHERE id = 1;", sqlBuilder.update("Message").set("likes", 1).where("id").eq(1).end());
+        });
+        test("a timestamp added by ALTER keeps its trigger", () -> {
+            SQLBuilder sqlBuilder = new SQLBuilder().enableInlineTimestamps();
+            String sql = sqlBuilder.alterTable("Message").column("updated").updateSetCurrent().end().end();
+            that(sql.contains("CREATE TRIGGER update_Message_updated"), sql);
+        });
+
+        done();
+    }
+
+}
@@ -0,0 +1,113 @@
+package tk.kahsolt.sqlbuilder.annotation;
+
+import tk.kahsolt.sqlbuilder.jdbc.FakeJdbc;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static tk.kahsolt.sqlbuilder.Check.*;
+
+public class StatementProcessorTest {
+
+    private static final String HEADER = "package demo;\n"
+            + "import tk.kahsolt.sqlbuilder.annotation.*;\n"
+            + "import tk.kahsolt.sqlbuilder.sql.Dialect;\n"
+            + "@Statements(dialects = {Dialect.SQLITE, Dialect.MYSQL})\n"
+            + "public interface UserQueries {\n";
+
+    // runs javac with the processor on demo.UserQueries, the errors it reported go to errors
+    private static Path compile(String body, List<String> errors) throws Exception {
+        Path dir = Files.createTempDirectory("statements");
+        Path source = Files.createDirectories(dir.resolve("src/demo")).resolve("UserQueries.java");
+        Files.write(source, (HEADER + body + "}\n").getBytes(StandardCharsets.UTF_8));
+        Files.createDirectories(dir.resolve("out"));
+        Files.createDirectories(dir.resolve("gen"));
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (StandardJavaFileManager files = javac.getStandardFileManager(diagnostics, null, StandardCharsets.UTF_8)) {
+            List<String> options = Arrays.asList("-classpath", System.getProperty("java.class.path"),
+                    "-processor", StatementProcessor.class.getName(), "-d", dir.resolve("out").toString(), "-s", dir.resolve("gen").toString());
+            javac.getTask(null, files, diagnostics, options, null, files.getJavaFileObjects(source.toFile())).call();
+        }
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics())
+            if(diagnostic.getKind()==Diagnostic.Kind.ERROR) errors.add(diagnostic.getMessage(null));
+        return dir;
+    }
+
+    private static void delete(Path dir) throws Exception {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    public static void main(String[] args) {
+
+        test("generates the SQL and typed binders per dialect", () -> {
+            List<String> errors = new ArrayList<>();
+            Path dir = compile("    @Select(value = {\"id\", \"name\"}, from = \"User\", where = {\"name LIKE\", \"OR level >=\"}, orderBy = \"id DESC\", limit = 10)\n"
+                    + "    void findByName(String name, int level);\n"
+                    + "    @Update(table = \"User\", set = \"level\", where = \"id\")\n"
+                    + "    void setLevel(int level, long id);\n", errors);
+            try {
+                equal(new ArrayList<String>(), errors);
+                String generated = new String(Files.readAllBytes(dir.resolve("gen/demo/UserQueriesSQL.java")), StandardCharsets.UTF_8);
+                that(generated.contains("public static final String FIND_BY_NAME = \"SELECT id, name FROM User WHERE name LIKE ? OR level >= ? ORDER BY id DESC LIMIT 10;\";"), generated);
+                that(generated.contains("public static final String SET_LEVEL = \"UPDATE User SET level = ? WHERE id = ?;\";"), generated);
+                that(generated.contains("public static final class MYSQL {"), generated);
+                that(generated.contains("statement.setInt(1, level);\n        statement.setLong(2, id);"), generated);
+                try (URLClassLoader loader = new URLClassLoader(new URL[]{dir.resolve("out").toUri().toURL()}, StatementProcessorTest.class.getClassLoader())) {
+                    Class<?> sqlite = loader.loadClass("demo.UserQueriesSQL$SQLITE");
+                    FakeJdbc jdbc = new FakeJdbc();
+                    PreparedStatement statement = (PreparedStatement) sqlite.getMethod("findByName", Connection.class, String.class, int.class)
+                            .invoke(null, jdbc.connection(), "a%", 3);
+                    statement.close();
+                    equal(Arrays.asList("prepare SELECT id, name FROM User WHERE name LIKE ? OR level >= ? ORDER BY id DESC LIMIT 10;",
+                            "setString [1, a%]", "setInt [2, 3]", "close"), jdbc.log);
+                }
+            } finally {
+                delete(dir);
+            }
+        });
+        test("a '?' count that differs from the parameters fails the build", () -> {
+            List<String> errors = new ArrayList<>();
+            Path dir = compile("    @Update(table = \"User\", set = \"level\", where = \"id\")\n"
+                    + "    void setLevel(int level);\n", errors);
+            try {
+                equal(2, errors.size());    // once per dialect
+                for (String error : errors) that(error.contains("2 '?' but 1 parameters"), error);
+                that(!Files.exists(dir.resolve("gen/demo/UserQueriesSQL.java")), "nothing generated");
+            } finally {
+                delete(dir);
+            }
+        });
+        test("@Statements goes on an interface", () -> {
+            List<String> errors = new ArrayList<>();
+            Path dir = compile("}\n@Statements class Wrong {\n", errors);
+            try {
+                equal(Arrays.asList("@Statements goes on an interface"), errors);
+            } finally {
+                delete(dir);
+            }
+        });
+
+        done();
+    }
+
+}
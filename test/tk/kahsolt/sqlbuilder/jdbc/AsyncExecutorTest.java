@@ -0,0 +1,108 @@
+package tk.kahsolt.sqlbuilder.jdbc;
+
+import tk.kahsolt.sqlbuilder.SQLBuilder;
+import tk.kahsolt.sqlbuilder.sql.Query;
+import tk.kahsolt.sqlbuilder.sql.Transaction;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static tk.kahsolt.sqlbuilder.Check.*;
+
+public class AsyncExecutorTest {
+
+    static DataSource dataSource(Supplier<Connection> connections) {
+        return (DataSource) Proxy.newProxyInstance(AsyncExecutorTest.class.getClassLoader(), new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+            if(method.getName().equals("getConnection")) return connections.get();
+            return null;
+        });
+    }
+
+    // a Connection whose statement runs until cancel() is called, then fails as a driver does
+    static Connection blocking(List<String> log, CountDownLatch started) {
+        CountDownLatch cancelled = new CountDownLatch(1);
+        PreparedStatement statement = (PreparedStatement) Proxy.newProxyInstance(AsyncExecutorTest.class.getClassLoader(), new Class<?>[]{PreparedStatement.class}, (proxy, method, args) -> {
+            log.add(args==null ? method.getName() : method.getName() + " " + Arrays.toString(args));
+            switch (method.getName()) {
+                case "executeUpdate":
+                    started.countDown();
+                    if(!cancelled.await(5, TimeUnit.SECONDS)) return 1;
+                    throw new SQLException("statement cancelled");
+                case "cancel": cancelled.countDown(); break;
+            }
+            return method.getReturnType()==int.class ? 0 : null;
+        });
+        return (Connection) Proxy.newProxyInstance(AsyncExecutorTest.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+            if(method.getName().equals("prepareStatement")) return statement;
+            return method.getReturnType()==boolean.class ? false : null;
+        });
+    }
+
+    private static Query deleteUser() { return new SQLBuilder().enableParameterized().delete("User").where("id").eq(1); }
+
+    public static void main(String[] args) {
+        test("a Transaction runs as Transaction.execute() does", () -> {
+            FakeJdbc jdbc = new FakeJdbc();
+            try (AsyncExecutor executor = new AsyncExecutor(dataSource(jdbc::connection), 1)) {
+                Transaction transaction = new Transaction()
+                        .block("CREATE TABLE t (x INT); CREATE INDEX idx_t_x ON t(x);")
+                        .block("INSERT INTO t(x) VALUES(1);");
+                int[] counts = executor.execute(transaction).get(5, TimeUnit.SECONDS);
+                equal(Arrays.asList("addBatch [CREATE TABLE t (x INT)]", "addBatch [CREATE INDEX idx_t_x ON t(x)]",
+                        "addBatch [INSERT INTO t(x) VALUES(1)]"), jdbc.logged("addBatch"));
+                equal(1, jdbc.logged("executeBatch").size());
+                equal(1, jdbc.logged("commit").size());
+                FakeJdbc direct = new FakeJdbc();
+                equal(Arrays.toString(transaction.execute(direct.connection())), Arrays.toString(counts));
+                equal(direct.log, jdbc.log.subList(0, direct.log.size()));
+            }
+        });
+        test("timeout() cancels the running statement", () -> {
+            List<String> log = new CopyOnWriteArrayList<>();
+            CountDownLatch started = new CountDownLatch(1);
+            try (AsyncExecutor executor = new AsyncExecutor(dataSource(() -> blocking(log, started)), 1).timeout(1, TimeUnit.SECONDS)) {
+                CompletableFuture<Integer> future = executor.update(deleteUser());
+                ExecutionException e = fails(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+                that(e.getCause() instanceof TimeoutException, String.valueOf(e.getCause()));
+                that(started.await(5, TimeUnit.SECONDS), "the statement ran");
+                for (long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5); !log.contains("close") && System.nanoTime() < deadline; ) Thread.sleep(1);
+                equal(Arrays.asList("setQueryTimeout [1]", "executeUpdate", "cancel", "close"), log.subList(log.indexOf("setQueryTimeout [1]"), log.size()));
+            }
+        });
+        test("cancel() stops the running call, a cancelled queued call takes no connection", () -> {
+            List<String> log = new CopyOnWriteArrayList<>();
+            CountDownLatch started = new CountDownLatch(1);
+            AtomicInteger connections = new AtomicInteger();
+            FakeJdbc jdbc = new FakeJdbc();
+            DataSource dataSource = dataSource(() -> connections.getAndIncrement()==0 ? blocking(log, started) : jdbc.connection());
+            try (AsyncExecutor executor = new AsyncExecutor(dataSource, 1)) {
+                CompletableFuture<Integer> running = executor.update(deleteUser());
+                that(started.await(5, TimeUnit.SECONDS), "the statement ran");
+                CompletableFuture<Integer> queued = executor.update(deleteUser());
+                that(queued.cancel(true), "queued call cancelled");
+                that(running.cancel(true), "running call cancelled");
+                that(running.isCancelled(), "running call is cancelled");
+                equal(1, executor.update(deleteUser()).get(5, TimeUnit.SECONDS));
+                that(log.contains("cancel"), "cancel() reached the statement");
+                equal(2, connections.get());
+                equal(Arrays.asList("prepare DELETE FROM User WHERE id = ?;", "setLong [1, 1]", "executeUpdate", "close"), jdbc.log.subList(0, 4));   // the connection may still be closing
+            }
+        });
+
+        done();
+    }
+
+}
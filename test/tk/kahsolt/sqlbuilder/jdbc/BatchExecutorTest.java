@@ -0,0 +1,70 @@
+package tk.kahsolt.sqlbuilder.jdbc;
+
+import tk.kahsolt.sqlbuilder.SQLBuilder;
+import tk.kahsolt.sqlbuilder.sql.Prepared;
+import tk.kahsolt.sqlbuilder.sql.Query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import static tk.kahsolt.sqlbuilder.Check.*;
+
+public class BatchExecutorTest {
+
+    public static void main(String[] args) {
+        SQLBuilder sqlBuilder = new SQLBuilder();
+
+        test("binds every row in order", () -> {
+            FakeJdbc jdbc = new FakeJdbc();
+            Query insert = sqlBuilder.insert("User").into("name", "level").values();
+            BatchExecutor.Result result = new BatchExecutor(jdbc.connection()).batchSize(2)
+                    .execute(insert, Stream.of(new Object[]{"a", 1}, new Object[]{"b", 2}, new Object[]{"c", 3}));
+            equal(3L, result.getRows());
+            equal(2L, result.getBatches());
+            equal(Arrays.asList("setString [1, a]", "setString [1, b]", "setString [1, c]"), jdbc.logged("setString"));
+            equal(Arrays.asList("setInt [2, 1]", "setInt [2, 2]", "setInt [2, 3]"), jdbc.logged("setInt"));
+        });
+        test("an UPDATE template keeps its bound values, commitEvery() commits along the way", () -> {
+            FakeJdbc jdbc = new FakeJdbc();
+            Query update = new SQLBuilder().enableParameterized().update("User").set("level").set("note", "x").where("id").eq();
+            ArrayList<Integer> batches = new ArrayList<>();
+            BatchExecutor.Result result = new BatchExecutor(jdbc.connection()).batchSize(2).commitEvery(2)
+                    .listener((batch, rows, updateCounts, nanos) -> batches.add(rows))
+                    .execute(update, Stream.of(new Object[]{1, 10L}, new Object[]{2, 20L}, new Object[]{3, 30L}, new Object[]{4, 40L}, new Object[]{5, 50L}));
+            equal("prepare UPDATE User SET level = ?, note = ? WHERE id = ?;", jdbc.logged("prepare").get(0));
+            equal(Arrays.asList("setString [2, x]", "setString [2, x]", "setString [2, x]", "setString [2, x]", "setString [2, x]"), jdbc.logged("setString"));
+            equal(Arrays.asList("setLong [3, 10]", "setLong [3, 20]", "setLong [3, 30]", "setLong [3, 40]", "setLong [3, 50]"), jdbc.logged("setLong"));
+            equal(Arrays.asList(2, 2, 1), batches);
+            equal(3L, result.getBatches());
+            equal(2L, result.getCommits());     // after batch 2, then the rest at the end
+            equal(2, jdbc.logged("commit").size());
+        });
+        test("a short row fails and rolls back instead of reusing the previous row's values", () -> {
+            FakeJdbc jdbc = new FakeJdbc();
+            Query insert = sqlBuilder.insert("User").into("name", "level").values();
+            IllegalArgumentException e = fails(IllegalArgumentException.class, () -> new BatchExecutor(jdbc.connection())
+                    .execute(insert, Stream.of(new Object[]{"a", 1}, new Object[]{"b"})));
+            that(e.getMessage().startsWith("row 2 "), e.getMessage());
+            equal(1, jdbc.logged("addBatch").size());
+            equal(0, jdbc.logged("executeBatch").size());
+            equal(1, jdbc.logged("rollback").size());
+        });
+        test("a long row fails too", () -> {
+            FakeJdbc jdbc = new FakeJdbc();
+            Query insert = sqlBuilder.insert("User").into("name", "level").values();
+            fails(IllegalArgumentException.class, () -> new BatchExecutor(jdbc.connection())
+                    .execute(insert, Stream.<Object[]>of(new Object[]{"a", 1, 2})));
+        });
+        test("Prepared.bind() needs one value per unbound '?'", () -> {
+            FakeJdbc jdbc = new FakeJdbc();
+            Prepared prepared = sqlBuilder.update("User").set("level").where("id").eq().prepare();
+            equal(2, prepared.getUnboundCount());
+            fails(IllegalArgumentException.class, () -> prepared.prepare(jdbc.connection()));
+            equal(1, jdbc.logged("close").size());
+        });
+
+        done();
+    }
+
+}
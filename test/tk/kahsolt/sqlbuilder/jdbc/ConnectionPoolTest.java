@@ -0,0 +1,75 @@
+package tk.kahsolt.sqlbuilder.jdbc;
+
+import tk.kahsolt.sqlbuilder.sql.Dialect;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import static tk.kahsolt.sqlbuilder.Check.*;
+
+public class ConnectionPoolTest {
+
+    private static int tracked(Connection connection) throws ReflectiveOperationException {    // statements the pool would close with it
+        Object logical = Proxy.getInvocationHandler(connection);
+        Field statements = logical.getClass().getDeclaredField("statements");
+        statements.setAccessible(true);
+        return ((List<?>) statements.get(logical)).size();
+    }
+
+    public static void main(String[] args) {
+        test("a cached statement goes back without the last borrower's limits", () -> {
+            FakeJdbc jdbc = new FakeJdbc();
+            try (ConnectionPool pool = new ConnectionPool(Dialect.SQLITE, jdbc::connection).maxSize(1)) {
+                try (Connection connection = pool.getConnection();
+                     PreparedStatement statement = connection.prepareStatement("SELECT id FROM User;")) {
+                    statement.setQueryTimeout(5);
+                    statement.setFetchSize(100);
+                    statement.setMaxRows(10);
+                }
+                equal(Arrays.asList("setQueryTimeout [5]", "setQueryTimeout [0]"), jdbc.logged("setQueryTimeout"));
+                equal(Arrays.asList("setFetchSize [100]", "setFetchSize [0]"), jdbc.logged("setFetchSize"));
+                equal(Arrays.asList("setMaxRows [10]", "setMaxRows [0]"), jdbc.logged("setMaxRows"));
+                try (Connection connection = pool.getConnection();
+                     PreparedStatement statement = connection.prepareStatement("SELECT id FROM User;")) {
+                    statement.executeQuery();
+                }
+                equal(1, jdbc.logged("prepare").size());
+                equal(1L, pool.getStatementHits());
+            }
+        });
+
+        test("closed statements leave the borrower's list", () -> {
+            FakeJdbc jdbc = new FakeJdbc();
+            try (ConnectionPool pool = new ConnectionPool(Dialect.SQLITE, jdbc::connection);
+                 Connection connection = pool.getConnection()) {
+                for (int i = 0; i < 100; i++) {
+                    try (Statement statement = connection.createStatement()) {
+                        statement.execute("DELETE FROM t WHERE id = " + i);
+                        equal(connection, statement.getConnection());
+                    }
+                    try (PreparedStatement statement = connection.prepareStatement("SELECT id FROM t", ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY)) {
+                        statement.executeQuery();
+                    }
+                    try (PreparedStatement statement = connection.prepareStatement("SELECT id FROM t WHERE id = ?")) {
+                        statement.setInt(1, i);
+                    }
+                }
+                equal(0, tracked(connection));
+                Statement open = connection.createStatement();
+                equal(1, tracked(connection));
+                int closes = jdbc.logged("close").size();
+                connection.close();     // closes what is still open, once
+                equal(closes + 1, jdbc.logged("close").size());
+            }
+        });
+
+        done();
+    }
+
+}
@@ -0,0 +1,113 @@
+package tk.kahsolt.sqlbuilder.jdbc;
+
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// A Connection that runs nothing: it logs the calls made on it and its statements, and answers executeQuery()
+// with the results queued by result(), in order, then with empty ones; execute() of a failOn() statement throws.
+// No database driver is needed.
+public class FakeJdbc {
+
+    public final List<String> log = new ArrayList<>();
+    private final ArrayDeque<Object[][]> results = new ArrayDeque<>();     // first row: the column labels
+    private final List<String> failures = new ArrayList<>();
+    private boolean autoCommit = true;
+
+    public FakeJdbc result(String[] labels, Object[]... rows) {
+        Object[][] result = new Object[rows.length + 1][];
+        result[0] = labels;
+        System.arraycopy(rows, 0, result, 1, rows.length);
+        results.add(result);
+        return this;
+    }
+
+    public FakeJdbc failOn(String sql) {
+        failures.add(sql);
+        return this;
+    }
+
+    public List<String> logged(String prefix) {     // the entries starting with prefix
+        ArrayList<String> entries = new ArrayList<>();
+        for (String entry : log) if(entry.startsWith(prefix)) entries.add(entry);
+        return entries;
+    }
+
+    public Connection connection() {
+        return (Connection) Proxy.newProxyInstance(FakeJdbc.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getAutoCommit": return autoCommit;
+                case "setAutoCommit": autoCommit = (Boolean) args[0]; break;
+                case "prepareStatement": log.add("prepare " + args[0]); return statement(PreparedStatement.class);
+                case "createStatement": return statement(Statement.class);
+                case "hashCode": return System.identityHashCode(proxy);
+                case "equals": return proxy == args[0];
+                case "toString": return "FakeConnection";
+            }
+            log.add(call(method.getName(), args));
+            return defaultOf(method.getReturnType());
+        });
+    }
+
+    private Statement statement(Class<? extends Statement> type) {
+        return (Statement) Proxy.newProxyInstance(FakeJdbc.class.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            String name = method.getName();
+            log.add(call(name, args));
+            switch (name) {
+                case "executeQuery": return resultSet(results.isEmpty() ? new Object[][]{{}} : results.poll());
+                case "executeBatch": return new int[0];
+                case "execute": if(failures.contains(args[0])) throw new SQLException("failed: " + args[0]); break;
+                case "hashCode": return System.identityHashCode(proxy);
+                case "equals": return proxy == args[0];
+            }
+            if(method.getReturnType()==int.class) return 1;
+            return defaultOf(method.getReturnType());
+        });
+    }
+
+    private static ResultSet resultSet(Object[][] result) {
+        Object[] labels = result[0];
+        int[] row = {0};
+        ResultSetMetaData meta = (ResultSetMetaData) Proxy.newProxyInstance(FakeJdbc.class.getClassLoader(), new Class<?>[]{ResultSetMetaData.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getColumnCount": return labels.length;
+                case "getColumnLabel":
+                case "getColumnName": return labels[(Integer) args[0] - 1];
+            }
+            return defaultOf(method.getReturnType());
+        });
+        return (ResultSet) Proxy.newProxyInstance(FakeJdbc.class.getClassLoader(), new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "next": return ++row[0] < result.length;
+                case "getMetaData": return meta;
+                case "getObject":
+                case "getString":
+                case "getInt":
+                case "getLong": {
+                    Object value = args[0] instanceof Integer ? result[row[0]][(Integer) args[0] - 1]
+                            : result[row[0]][Arrays.asList(labels).indexOf(args[0])];
+                    if(method.getName().equals("getString")) return value==null ? null : value.toString();
+                    if(method.getName().equals("getInt")) return value==null ? 0 : ((Number) value).intValue();
+                    if(method.getName().equals("getLong")) return value==null ? 0L : ((Number) value).longValue();
+                    return value;
+                }
+            }
+            return defaultOf(method.getReturnType());
+        });
+    }
+
+    private static String call(String name, Object[] args) {
+        return args==null ? name : name + " " + Arrays.deepToString(args);
+    }
+
+    private static Object defaultOf(Class<?> type) {
+        if(type==boolean.class) return false;
+        if(type==int.class) return 0;
+        if(type==long.class) return 0L;
+        return null;
+    }
+
+}
@@ -0,0 +1,49 @@
+package tk.kahsolt.sqlbuilder.jdbc;
+
+import tk.kahsolt.sqlbuilder.sql.Transaction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static tk.kahsolt.sqlbuilder.Check.*;
+
+public class GroupCommitterTest {
+
+    public static void main(String[] args) {
+        test("a Transaction block runs statement by statement, one count per block", () -> {
+            FakeJdbc jdbc = new FakeJdbc();
+            try (GroupCommitter committer = new GroupCommitter(jdbc.connection()).flushWindow(0, TimeUnit.MILLISECONDS)) {
+                Transaction transaction = new Transaction()
+                        .block("CREATE TABLE t (x INT); CREATE INDEX idx_t_x ON t(x);")
+                        .block("INSERT INTO t(x) VALUES(';');");
+                int[] counts = committer.submit(transaction).get(5, TimeUnit.SECONDS);
+                equal(Arrays.asList("execute [CREATE TABLE t (x INT)]", "execute [CREATE INDEX idx_t_x ON t(x)]",
+                        "execute [INSERT INTO t(x) VALUES(';')]"), jdbc.logged("execute"));
+                that(Arrays.equals(new int[]{2, 1}, counts), Arrays.toString(counts));
+                equal(1L, committer.getCommits());
+            }
+        });
+        test("a failed unit is rolled back to its savepoint, which is then released", () -> {
+            FakeJdbc jdbc = new FakeJdbc().failOn("DELETE FROM t");
+            try (GroupCommitter committer = new GroupCommitter(jdbc.connection()).flushWindow(0, TimeUnit.MILLISECONDS)) {
+                fails(ExecutionException.class, () -> committer.submit("DELETE FROM t").get(5, TimeUnit.SECONDS));
+            }
+            List<String> calls = new ArrayList<>();
+            for (String entry : jdbc.log) if(entry.startsWith("setSavepoint") || entry.startsWith("rollback") || entry.startsWith("releaseSavepoint") || entry.startsWith("commit")) calls.add(entry.split(" ")[0]);
+            equal(Arrays.asList("setSavepoint", "rollback", "releaseSavepoint", "commit"), calls);
+        });
+        test("close() twice and submit() after close", () -> {
+            FakeJdbc jdbc = new FakeJdbc();
+            GroupCommitter committer = new GroupCommitter(jdbc.connection());
+            committer.close();
+            committer.close();
+            that(committer.submit("DELETE FROM t").isCompletedExceptionally(), "submit after close fails");
+        });
+
+        done();
+    }
+
+}
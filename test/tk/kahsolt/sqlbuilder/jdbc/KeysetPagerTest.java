@@ -0,0 +1,37 @@
+package tk.kahsolt.sqlbuilder.jdbc;
+
+import tk.kahsolt.sqlbuilder.SQLBuilder;
+
+import java.util.List;
+
+import static tk.kahsolt.sqlbuilder.Check.*;
+
+public class KeysetPagerTest {
+
+    public static void main(String[] args) {
+        SQLBuilder sqlBuilder = new SQLBuilder();   // not parameterized, the pager binds the keys anyway
+
+        test("pages bind the last key and keep an OR base grouped", () -> {
+            FakeJdbc jdbc = new FakeJdbc()
+                    .result(new String[]{"id", "name"}, new Object[]{1, "a"}, new Object[]{2, "it's"})
+                    .result(new String[]{"id", "name"}, new Object[]{3, "c"});
+            KeysetPager pager = new KeysetPager(jdbc.connection(),
+                    sqlBuilder.select("id", "name").from("User").where("level").eq(1).or("vip").eq(1).orderBy("id"), 2);
+            int rows = 0;
+            while (pager.hasNext()) {
+                List<Object[]> page = pager.next();
+                rows += page.size();
+            }
+            equal(3, rows);
+            equal(2L, pager.getPages());
+            List<String> prepared = jdbc.logged("prepare");
+            equal("prepare SELECT id, name FROM User WHERE level = 1 OR vip = 1 ORDER BY id LIMIT 2;", prepared.get(0));
+            equal("prepare SELECT id, name FROM User WHERE (level = 1 OR vip = 1) AND id > ? ORDER BY id LIMIT 2;", prepared.get(1));
+            that(jdbc.log.contains("setObject [1, 2]") || jdbc.log.contains("setInt [1, 2]") || jdbc.log.contains("setLong [1, 2]"),
+                    "last key bound: " + jdbc.log);
+        });
+
+        done();
+    }
+
+}
@@ -0,0 +1,70 @@
+package tk.kahsolt.sqlbuilder.jdbc;
+
+import tk.kahsolt.sqlbuilder.SQLBuilder;
+import tk.kahsolt.sqlbuilder.sql.Dialect;
+import tk.kahsolt.sqlbuilder.sql.Query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static tk.kahsolt.sqlbuilder.Check.*;
+
+public class LargeInTest {
+
+    private static List<Object> ids(int n) {
+        ArrayList<Object> ids = new ArrayList<>(n);
+        for (long i = 1; i <= n; i++) ids.add(i);
+        return ids;
+    }
+
+    public static void main(String[] args) {
+        SQLBuilder sqlite = new SQLBuilder();
+        SQLBuilder mysql = new SQLBuilder(Dialect.MYSQL);
+
+        test("DELETE with an OR base only touches the id set", () -> {
+            FakeJdbc jdbc = new FakeJdbc();
+            Query delete = sqlite.delete("User").where("banned").eq(1).or("expired").eq(1);
+            new LargeIn(delete, "id", Arrays.asList(1L, 2L, 3L)).update(jdbc.connection());
+            equal(Arrays.asList("prepare DELETE FROM User WHERE (banned = 1 OR expired = 1) AND id IN (?, ?, ?, ?);"),
+                    jdbc.logged("prepare"));
+        });
+        test("every strategy groups an OR base", () -> {
+            Query delete = sqlite.delete("User").where("banned").eq(1).or("expired").eq(1);
+            String grouped = "DELETE FROM User WHERE (banned = 1 OR expired = 1) AND id IN ";
+            equal(grouped + "(SELECT value FROM json_each(?));",
+                    new LargeIn(delete, "id", ids(600)).plan().getStatements().get(0).getSql());
+            LargeIn.Plan temp = new LargeIn(delete, "id", ids(10)).strategy(LargeIn.Strategy.TEMP_TABLE).plan();
+            that(temp.getStatements().get(0).getSql().startsWith(grouped + "(SELECT v FROM sqlbuilder_in_"), temp.toString());
+            Query update = mysql.update("User").set("flag", 1).where("banned").eq(1).or("expired").eq(1);
+            LargeIn.Plan chunked = new LargeIn(update, "id", ids(1500)).strategy(LargeIn.Strategy.CHUNKED).plan();
+            equal(2, chunked.getStatements().size());
+            for (int i = 0; i < 2; i++) {
+                that(chunked.getStatements().get(i).getSql().startsWith("UPDATE User SET flag = 1 WHERE (banned = 1 OR expired = 1) AND id IN (?"),
+                        chunked.toString());
+            }
+        });
+        test("an empty set matches nothing", () -> {
+            Query delete = sqlite.delete("User").where("banned").eq(1).or("expired").eq(1);
+            equal("DELETE FROM User WHERE (banned = 1 OR expired = 1) AND id IN (NULL);",
+                    new LargeIn(delete, "id", new ArrayList<>()).plan().getStatements().get(0).getSql());
+        });
+        test("MySQL temp table fits the longest value and loads each value once", () -> {
+            Query select = mysql.select("*").from("User");
+            LargeIn.Plan strings = new LargeIn(select, "name", Arrays.asList("a", "abcd", "A", "a", null))
+                    .strategy(LargeIn.Strategy.TEMP_TABLE).plan();
+            that(strings.getSetup().get(0).endsWith("(v VARCHAR(4), KEY(v))"), strings.toString());
+            equal(3, strings.getLoadCount());
+            char[] wide = new char[300];
+            Arrays.fill(wide, 'x');
+            LargeIn.Plan longer = new LargeIn(select, "name", Arrays.asList("a", new String(wide))).strategy(LargeIn.Strategy.TEMP_TABLE).plan();
+            that(longer.getSetup().get(0).endsWith("(v VARCHAR(300), KEY(v(191)))"), longer.toString());
+            LargeIn.Plan integral = new LargeIn(select, "id", Arrays.<Object>asList(1, 1L, (short) 2, 2L)).strategy(LargeIn.Strategy.TEMP_TABLE).plan();
+            that(integral.getSetup().get(0).endsWith("(v BIGINT PRIMARY KEY)"), integral.toString());
+            equal(2, integral.getLoadCount());
+        });
+
+        done();
+    }
+
+}
@@ -0,0 +1,73 @@
+package tk.kahsolt.sqlbuilder.jdbc;
+
+import tk.kahsolt.sqlbuilder.SQLBuilder;
+import tk.kahsolt.sqlbuilder.sql.Dialect;
+import tk.kahsolt.sqlbuilder.sql.Query;
+
+import static tk.kahsolt.sqlbuilder.Check.*;
+
+public class QueryPlanTest {
+
+    private static final String[] SQLITE = {"id", "parent", "notused", "detail"};
+    private static final String[] MYSQL = {"id", "select_type", "table", "type", "key", "rows", "Extra"};
+
+    private static FakeJdbc sqlite(String... details) {
+        Object[][] rows = new Object[details.length][];
+        for (int i = 0; i < details.length; i++) rows[i] = new Object[]{i + 2, 0, 0, details[i]};
+        return new FakeJdbc().result(SQLITE, rows);
+    }
+
+    public static void main(String[] args) {
+        SQLBuilder sqlBuilder = new SQLBuilder();
+        Query query = sqlBuilder.select("age").from("User").where("age").gt(13);
+
+        test("SQLite plan lines are classified", () -> {
+            equal(QueryPlan.Kind.SCAN, QueryPlan.parseSqlite("SCAN TABLE User").getKind());
+            equal(QueryPlan.Kind.INDEX_SCAN, QueryPlan.parseSqlite("SCAN User USING COVERING INDEX idx_User_age").getKind());
+            equal(QueryPlan.Kind.SEARCH, QueryPlan.parseSqlite("SEARCH User USING COVERING INDEX idx_User_age (age>?)").getKind());
+            equal(QueryPlan.Kind.AUTOMATIC_INDEX, QueryPlan.parseSqlite("SEARCH t USING AUTOMATIC COVERING INDEX (x=?)").getKind());
+            equal(QueryPlan.Kind.TEMP_BTREE, QueryPlan.parseSqlite("USE TEMP B-TREE FOR ORDER BY").getKind());
+        });
+        test("an index search passes", () -> {
+            QueryPlan.assertUsesIndex(sqlite("SEARCH User USING COVERING INDEX idx_User_age (age>?)").connection(), query);
+            QueryPlan.assertUsesIndex(sqlite("SEARCH User USING COVERING INDEX idx_User_age (age>?)").connection(), query, "idx_User_age");
+        });
+        test("a full scan of a covering index fails unless allowed", () -> {
+            String scan = "SCAN User USING COVERING INDEX idx_User_age";
+            AssertionError e = fails(AssertionError.class, () -> QueryPlan.assertUsesIndex(sqlite(scan).connection(), query));
+            that(e.getMessage().startsWith("query scans a whole index"), e.getMessage());
+            fails(AssertionError.class, () -> QueryPlan.assertUsesIndex(sqlite(scan).connection(), query, "idx_User_age"));
+            QueryPlan.assertUsesIndex(sqlite(scan).connection(), query, true);
+            QueryPlan.assertUsesIndex(sqlite(scan).connection(), query, "idx_User_age", true);
+        });
+        test("a table scan fails even when index scans are allowed", () -> {
+            fails(AssertionError.class, () -> QueryPlan.assertUsesIndex(sqlite("SCAN User").connection(), query, true));
+        });
+        test("MySQL type=index is an index scan", () -> {
+            FakeJdbc jdbc = new FakeJdbc().result(MYSQL, new Object[]{1, "SIMPLE", "User", "index", "idx_User_age", 1000, "Using where; Using index"});
+            Query mysql = new SQLBuilder(Dialect.MYSQL).select("age").from("User").where("age").gt(13);
+            fails(AssertionError.class, () -> QueryPlan.assertUsesIndex(jdbc.connection(), mysql));
+            equal("prepare EXPLAIN SELECT age FROM User WHERE age > 13", jdbc.logged("prepare").get(0));
+        });
+        test("a plan that never reads the table fails", () -> {
+            FakeJdbc jdbc = new FakeJdbc().result(MYSQL, new Object[]{1, "SIMPLE", null, null, null, null, "Impossible WHERE"});
+            Query mysql = new SQLBuilder(Dialect.MYSQL).select("age").from("User").where("age").gt(13);
+            AssertionError e = fails(AssertionError.class, () -> QueryPlan.assertUsesIndex(jdbc.connection(), mysql));
+            that(e.getMessage().startsWith("query plan does not read User"), e.getMessage());
+            fails(AssertionError.class, () -> QueryPlan.assertUsesIndex(sqlite("SEARCH Book USING INDEX idx_Book_year (year>?)").connection(), query));
+            QueryPlan.assertUsesIndex(sqlite("SEARCH u USING INDEX idx_User_age (age>?)").connection(),
+                    sqlBuilder.select("age").from("User u").where("age").gt(13));
+        });
+        test("unbound '?' need values", () -> {
+            Query unbound = sqlBuilder.select("age").from("User").where("age").gt();
+            fails(IllegalArgumentException.class, () -> QueryPlan.assertUsesIndex(sqlite("SEARCH User USING INDEX idx_User_age (age>?)").connection(), unbound));
+            FakeJdbc jdbc = sqlite("SEARCH User USING INDEX idx_User_age (age>?)");
+            QueryPlan plan = QueryPlan.explain(jdbc.connection(), unbound, 13);
+            that(plan.searchesIndex("idx_User_age"), plan.toString());
+            equal(1, jdbc.logged("setInt [1, 13]").size());
+        });
+
+        done();
+    }
+
+}
@@ -0,0 +1,76 @@
+package tk.kahsolt.sqlbuilder.jdbc;
+
+import tk.kahsolt.sqlbuilder.SQLBuilder;
+import tk.kahsolt.sqlbuilder.sql.Query;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static tk.kahsolt.sqlbuilder.Check.*;
+
+public class RowStreamTest {
+
+    private static final SQLBuilder sqlBuilder = new SQLBuilder().enableParameterized();
+
+    private static Query adults() { return sqlBuilder.select("id", "name").from("User").where("age").gt(17); }
+
+    public static void main(String[] args) {
+
+        test("streams the mapped rows with the fetch size", () -> {
+            FakeJdbc jdbc = new FakeJdbc().result(new String[]{"id", "name"}, new Object[]{1L, "kahsolt"}, new Object[]{2L, "luka"});
+            try (Stream<Object[]> rows = new RowStream(jdbc.connection()).fetchSize(100).stream(adults(), RowStream.ARRAYS)) {
+                equal(Arrays.asList("[1, kahsolt]", "[2, luka]"), rows.map(Arrays::toString).collect(Collectors.toList()));
+            }
+            equal(Arrays.asList("prepare SELECT id, name FROM User WHERE age > ?;", "setFetchSize [100]",
+                    "setLong [1, 17]", "executeQuery", "close"), jdbc.log);
+        });
+        test("a column binder resolves the label once", () -> {
+            FakeJdbc jdbc = new FakeJdbc().result(new String[]{"ID", "name"}, new Object[]{1L, "kahsolt"}, new Object[]{2L, "luka"});
+            try (Stream<String> names = new RowStream(jdbc.connection()).stream(adults(), RowStream.column("User.name", String.class))) {
+                equal(Arrays.asList("kahsolt", "luka"), names.collect(Collectors.toList()));
+            }
+            FakeJdbc missing = new FakeJdbc().result(new String[]{"id"});
+            fails(SQLException.class, () -> new RowStream(missing.connection()).open(adults(), RowStream.column("age", Long.class)));
+            equal(1, missing.logged("close").size());
+        });
+        test("the cursor is lazy and closes itself after the last row", () -> {
+            FakeJdbc jdbc = new FakeJdbc().result(new String[]{"id"}, new Object[]{1L}, new Object[]{2L}, new Object[]{3L});
+            RowStream.Cursor<Long> cursor = new RowStream(jdbc.connection()).open(adults(), RowStream.column("id", Long.class));
+            equal(0L, cursor.getRows());
+            equal(1L, cursor.next());
+            equal(1L, cursor.getRows());
+            that(!cursor.isClosed(), "open while rows are left");
+            List<Long> rest = Arrays.asList(cursor.next(), cursor.next());
+            equal(Arrays.asList(2L, 3L), rest);
+            that(!cursor.hasNext(), "no more rows");
+            that(cursor.isClosed(), "closed after the last row");
+            equal(1, jdbc.logged("close").size());
+        });
+        test("closing a stream early releases the statement", () -> {
+            FakeJdbc jdbc = new FakeJdbc().result(new String[]{"id"}, new Object[]{1L}, new Object[]{2L}, new Object[]{3L});
+            try (Stream<Long> ids = new RowStream(jdbc.connection()).stream(adults(), RowStream.column("id", Long.class))) {
+                equal(Arrays.asList(1L), ids.limit(1).collect(Collectors.toList()));
+                equal(0, jdbc.logged("close").size());
+            }
+            equal(1, jdbc.logged("close").size());
+        });
+        test("cancel() aborts the query and closes once", () -> {
+            FakeJdbc jdbc = new FakeJdbc().result(new String[]{"id"}, new Object[]{1L}, new Object[]{2L});
+            RowStream.Cursor<Long> cursor = new RowStream(jdbc.connection()).queryTimeout(5).open(adults(), RowStream.column("id", Long.class));
+            equal(1, jdbc.logged("setQueryTimeout [5]").size());
+            cursor.cancel();
+            cursor.close();
+            that(!cursor.hasNext(), "no rows after cancel()");
+            equal(Arrays.asList("cancel", "close"), jdbc.log.subList(jdbc.log.size() - 2, jdbc.log.size()));
+        });
+        test("only a SELECT streams", () -> {
+            fails(IllegalArgumentException.class, () -> new RowStream(new FakeJdbc().connection()).open(sqlBuilder.delete("User"), RowStream.ARRAYS));
+        });
+
+        done();
+    }
+
+}
@@ -0,0 +1,79 @@
+package tk.kahsolt.sqlbuilder.sql;
+
+import tk.kahsolt.sqlbuilder.SQLBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static tk.kahsolt.sqlbuilder.Check.*;
+
+public class BulkInsertTest {
+
+    private static List<Object[]> rows(int n) {
+        ArrayList<Object[]> rows = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) rows.add(new Object[]{i, "n" + i});
+        return rows;
+    }
+
+    public static void main(String[] args) {
+        SQLBuilder sqlite = new SQLBuilder();
+        SQLBuilder mysql = new SQLBuilder(Dialect.MYSQL);
+
+        test("maxRows splits literal rows", () -> {
+            ArrayList<String> statements = new ArrayList<>();
+            equal(3L, new BulkInsert(sqlite.insert("User").into("id", "name")).maxRows(2).write(rows(5).iterator(), statements::add));
+            equal(Arrays.asList("INSERT INTO User(id, name) VALUES(0, 'n0'), (1, 'n1');",
+                    "INSERT INTO User(id, name) VALUES(2, 'n2'), (3, 'n3');",
+                    "INSERT INTO User(id, name) VALUES(4, 'n4');"), statements);
+        });
+        test("maxBytes splits literal rows, counting utf-8 bytes", () -> {
+            ArrayList<String> statements = new ArrayList<>();
+            new BulkInsert(sqlite.insert("User").into("id", "name")).maxBytes(54).write(rows(5).iterator(), statements::add);
+            equal(3, statements.size());
+            for (String statement : statements) that(statement.length() <= 54, statement);
+            statements.clear();
+            List<Object[]> wide = Arrays.asList(new Object[]{1, "éé"}, new Object[]{2, "ab"});    // 54 chars, 56 bytes
+            new BulkInsert(sqlite.insert("User").into("id", "name")).maxBytes(55).write(wide.iterator(), statements::add);
+            equal(2, statements.size());
+        });
+        test("a row over maxBytes still goes out, alone", () -> {
+            ArrayList<String> statements = new ArrayList<>();
+            new BulkInsert(sqlite.insert("User").into("id", "name")).maxBytes(10).write(rows(2).iterator(), statements::add);
+            equal(Arrays.asList("INSERT INTO User(id, name) VALUES(0, 'n0');", "INSERT INTO User(id, name) VALUES(1, 'n1');"), statements);
+        });
+        test("placeholder rows stay under the dialect's parameter limit", () -> {
+            ArrayList<String> sqls = new ArrayList<>();
+            ArrayList<Object[]> params = new ArrayList<>();
+            equal(3L, new BulkInsert(sqlite.insert("User").into("id", "name")).writeParameterized(rows(1000).iterator(), (sql, values) -> {
+                sqls.add(sql);
+                params.add(values);
+            }));
+            equal(998, params.get(0).length);   // 499 rows of 2, under 999
+            equal(998, params.get(1).length);
+            equal(4, params.get(2).length);
+            that(sqls.get(0)==sqls.get(1), "full chunks share one sql string");
+            equal("INSERT INTO User(id, name) VALUES(?, ?), (?, ?);", sqls.get(2));
+            equal(new Object[]{998, "n998", 999, "n999"}, params.get(2));
+            ArrayList<Integer> widths = new ArrayList<>();
+            new BulkInsert(mysql.insert("User").into("id", "name")).writeParameterized(rows(40000).iterator(), (sql, values) -> widths.add(values.length));
+            equal(Arrays.asList(65534, 14466), widths);
+        });
+        test("maxRows and maxParameters on placeholder rows", () -> {
+            ArrayList<Integer> widths = new ArrayList<>();
+            new BulkInsert(sqlite.insert("User").into("id", "name")).maxRows(3).writeParameterized(rows(7).iterator(), (sql, values) -> widths.add(values.length));
+            equal(Arrays.asList(6, 6, 2), widths);
+            widths.clear();
+            new BulkInsert(sqlite.insert("User").into("id", "name")).maxParameters(5).writeParameterized(rows(3).iterator(), (sql, values) -> widths.add(values.length));
+            equal(Arrays.asList(4, 2), widths);
+        });
+        test("a row of the wrong width is rejected", () -> {
+            List<Object[]> rows = Arrays.asList(new Object[]{1, "a"}, new Object[]{2});
+            fails(IllegalArgumentException.class, () -> new BulkInsert(sqlite.insert("User").into("id", "name"))
+                    .writeParameterized(rows.iterator(), (sql, values) -> { }));
+        });
+
+        done();
+    }
+
+}
@@ -0,0 +1,32 @@
+package tk.kahsolt.sqlbuilder.sql;
+
+import static tk.kahsolt.sqlbuilder.Check.*;
+
+public class FingerprintTest {
+
+    public static void main(String[] args) {
+
+        test("literals, whitespace and the trailing semicolon do not count", () -> {
+            equal("SELECT * FROM User WHERE id = ?", Fingerprint.normalize("SELECT * FROM User WHERE id = 5;"));
+            equal(Fingerprint.hash("SELECT * FROM User WHERE id = 5;"), Fingerprint.hash("SELECT *  FROM User\n WHERE id=7"));
+            equal("select * from User where name = ? AND x = ?",
+                    Fingerprint.normalize("select * from User where name = 'it''s' -- c\n AND x = 1.5e3"));
+            equal("SELECT a FROM t1 WHERE b = ? AND c = ?", Fingerprint.normalize("SELECT a /* hint */ FROM t1 WHERE b = -3 AND c = X'ff'"));
+            equal("SELECT a FROM t2 WHERE col3 = ?", Fingerprint.normalize("SELECT a FROM t2 WHERE col3 = 3"));
+        });
+        test("IN lists and VALUES rows collapse to one", () -> {
+            equal("SELECT * FROM User WHERE id IN (?+)", Fingerprint.normalize("SELECT * FROM User WHERE id IN (1, 2, 3)"));
+            equal(Fingerprint.hash("SELECT * FROM User WHERE id IN (1, 2, 3)"), Fingerprint.hash("SELECT * FROM User WHERE id IN (4)"));
+            equal("INSERT INTO t(a, b) VALUES (?, ?)+", Fingerprint.normalize("INSERT INTO t(a, b) VALUES(1, 'x'), (2, 'y')"));
+            equal(Fingerprint.hash("INSERT INTO t(a, b) VALUES(1, 'x'), (2, 'y');"), Fingerprint.hash("INSERT INTO t(a, b) VALUES (3, 'z')"));
+            that(Fingerprint.hash("SELECT * FROM User WHERE id = 1") != Fingerprint.hash("SELECT * FROM Book WHERE id = 1"), "tables differ");
+        });
+        test("hex is 16 digits", () -> {
+            equal("000000000000000f", Fingerprint.hex(15));
+            equal(16, Fingerprint.hex(Fingerprint.hash("SELECT 1")).length());
+        });
+
+        done();
+    }
+
+}
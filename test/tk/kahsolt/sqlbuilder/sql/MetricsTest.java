@@ -0,0 +1,72 @@
+package tk.kahsolt.sqlbuilder.sql;
+
+import tk.kahsolt.sqlbuilder.SQLBuilder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+
+import static tk.kahsolt.sqlbuilder.Check.*;
+
+public class MetricsTest {
+
+    public static void main(String[] args) {
+
+        test("end() is recorded per keyword, a failed render counts as a failure", () -> {
+            SQLBuilder sqlBuilder = new SQLBuilder().enableMetrics();
+            sqlBuilder.select("*").from("User").where("id").eq(1).end();
+            sqlBuilder.select("*").from("User").end();
+            sqlBuilder.delete("User").where("id").eq(1).end();
+            sqlBuilder.update("User").end();    // no SET, renders null
+            Metrics metrics = sqlBuilder.getMetrics();
+            equal(4L, metrics.getRenders());
+            equal(1L, metrics.getFailures());
+            equal(2L, metrics.getRenderCounts().get("SELECT"));
+            equal(1L, metrics.getRenderCounts().get("DELETE"));
+            equal(3L, metrics.getLengthHistogram().count());
+            that(metrics.getP99Length() >= "SELECT * FROM User WHERE id = 1;".length(), metrics.toString());
+        });
+        test("percentiles are bucket upper bounds", () -> {
+            Metrics.Histogram histogram = new Metrics.Histogram();
+            for (int i = 0; i < 99; i++) histogram.record(100);
+            histogram.record(5000);
+            equal(127L, histogram.percentile(50));    // 100 is in [64, 128)
+            equal(127L, histogram.percentile(99));
+            equal(8191L, histogram.percentile(100));
+            equal(149.0, histogram.mean());
+        });
+        test("the JMX view reads the same counters", () -> {
+            Metrics metrics = new Metrics();
+            metrics.onExecute(Keyword.SELECT, "SELECT 1", 3000);
+            ObjectName name = metrics.registerMBean("MetricsTest");
+            try {
+                MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+                equal(name, metrics.registerMBean("MetricsTest"));     // once per Metrics
+                TabularData counts = (TabularData) server.getAttribute(name, "ExecuteCounts");  // a Map is open data in an MXBean
+                equal(1L, counts.get(new Object[]{"SELECT"}).get("value"));
+                server.invoke(name, "reset", null, null);
+                equal(0, metrics.getExecuteCounts().size());
+            } finally {
+                metrics.unregisterMBean();
+            }
+            that(!ManagementFactory.getPlatformMBeanServer().isRegistered(name), "unregistered");
+        });
+
+        test("unrecognized statements have their own bucket", () -> {
+            Metrics metrics = new Metrics();
+            metrics.onExecute(Keyword.of("PRAGMA foreign_keys = ON"), "PRAGMA foreign_keys = ON", 1000);
+            metrics.onExecute(Keyword.of("DELETE FROM User"), "DELETE FROM User", 2000);
+            equal(1L, metrics.getExecuteCounts().get(Metrics.OTHER));
+            equal(1L, metrics.getExecuteCounts().get("DELETE"));
+            equal(null, metrics.getExecuteCounts().get("DELIMITER"));
+            equal(0L, metrics.getExecuteHistogram(Keyword.DELIMITER).count());
+            equal(1000L, metrics.getExecuteHistogram(null).sum());
+            metrics.reset();
+            equal(0, metrics.getExecuteCounts().size());
+        });
+
+        done();
+    }
+
+}
@@ -0,0 +1,83 @@
+package tk.kahsolt.sqlbuilder.sql;
+
+import tk.kahsolt.sqlbuilder.SQLBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static tk.kahsolt.sqlbuilder.Check.*;
+
+public class QueryTest {
+
+    public static void main(String[] args) {
+        SQLBuilder sqlBuilder = new SQLBuilder();
+
+        test("frozen and() groups an OR base", () -> {
+            Query.Frozen base = sqlBuilder.select("*").from("User").where("a").eq(1).or("b").eq(2).freeze();
+            Query.Frozen derived = base.and("c = ?", 3);
+            equal("SELECT * FROM User WHERE (a = 1 OR b = 2) AND c = ?;", derived.end());
+            equal(new Object[]{3}, derived.prepare().getParams());
+            equal("SELECT * FROM User WHERE (a = 1 OR b = 2) AND c = ? AND d = ?;", derived.and("d = ?", 4).end());
+            equal("SELECT * FROM User WHERE a = 1 OR b = 2;", base.end());     // untouched
+        });
+        test("frozen and() leaves an AND base alone", () -> {
+            Query.Frozen base = sqlBuilder.select("*").from("User").where("a").eq(1).and("b").eq(2).freeze();
+            equal("SELECT * FROM User WHERE a = 1 AND b = 2 AND c = ?;", base.and("c = ?", 3).end());
+            equal("SELECT * FROM User WHERE a = 1 AND b = 2 OR c = ?;", base.or("c = ?", 3).end());
+        });
+        test("frozen and() after or() groups again", () -> {
+            Query.Frozen base = sqlBuilder.delete("User").where("a").eq(1).freeze();
+            equal("DELETE FROM User WHERE (a = 1 OR b = ?) AND c = ?;", base.or("b = ?", 2).and("c = ?", 3).end());
+        });
+        test("seek() groups a WHERE list of several conditions", () -> {
+            Query query = sqlBuilder.select("*").from("Book").where("a").eq(1).or("b").eq(2).orderBy("id").seek(7);
+            equal("SELECT * FROM Book WHERE (a = 1 OR b = 2) AND id > 7 ORDER BY id;", query.end());
+            equal(query.end(), query.freeze().end());
+            equal("SELECT * FROM Book WHERE a = 1 AND id > 7 ORDER BY id;",
+                    sqlBuilder.select("*").from("Book").where("a").eq(1).orderBy("id").seek(7).end());
+        });
+        test("seek(lastKey, true) binds the keys", () -> {
+            Prepared prepared = sqlBuilder.select("*").from("Book").orderBy("year", "id").seek(new Object[]{2018, "it's"}, true).prepare();
+            equal("SELECT * FROM Book WHERE (year, id) > (?, ?) ORDER BY year, id;", prepared.getSql());
+            equal(new Object[]{2018, "it's"}, prepared.getParams());
+        });
+        test("parameterized mode emits '?' and collects the values in clause order", () -> {
+            SQLBuilder bound = new SQLBuilder().enableParameterized();
+            Query[] queries = {
+                    bound.insert("User").into("name", "age").values("kahsolt", 13).values("o'neil", null),
+                    bound.update("User").set("name", "x").set("age", 14).where("id").eq(1).and("age").lt(20),
+                    bound.select("name").from("User").where("id").in(bound.select("uid").from("Book").where("year").gt(2018)).and("name").like("k"),
+                    bound.select("city").from("User").groupBy("city").having("COUNT(*)").gt(5).orderBy("city").limit(10),
+            };
+            String[] expected = {
+                    "INSERT INTO User(name, age) VALUES(?, ?), (?, ?); [kahsolt, 13, o'neil, null]",
+                    "UPDATE User SET name = ?, age = ? WHERE id = ? AND age < ?; [x, 14, 1, 20]",
+                    "SELECT name FROM User WHERE id IN (SELECT uid FROM Book WHERE year > ?) AND name LIKE ?; [2018, %k%]",
+                    "SELECT city FROM User GROUP BY city HAVING COUNT(*) > ? ORDER BY city LIMIT 10; [5]",
+            };
+            for (int i = 0; i < queries.length; i++) {
+                Prepared prepared = queries[i].prepare();
+                equal(expected[i], prepared.getSql() + " " + Arrays.toString(prepared.getParams()));
+            }
+            equal("UPDATE User SET name = 'x' WHERE id = 1;", sqlBuilder.update("User").set("name", "x").where("id").eq(1).end());
+            equal(0, sqlBuilder.update("User").set("name", "x").where("id").eq(1).prepare().getParamCount());
+        });
+        test("in() pads to a power of two, up to the dialect's '?' limit", () -> {
+            int[] sizes = {1, 2, 3, 512, 513, 999, 1000};
+            int[] sqlite = {1, 2, 4, 512, 999, 999, 1000};
+            int[] mysql = {1, 2, 4, 512, 1024, 1024, 1024};
+            for (int i = 0; i < sizes.length; i++) {
+                equal(sqlite[i], Query.Condition.bucket(sizes[i], Dialect.SQLITE));
+                equal(mysql[i], Query.Condition.bucket(sizes[i], Dialect.MYSQL));
+            }
+            ArrayList<Integer> ids = new ArrayList<>();
+            for (int id = 0; id < 513; id++) ids.add(id);
+            Prepared prepared = new SQLBuilder().enableParameterized().select("*").from("User").where("id").in(ids).prepare();
+            equal(999, prepared.getParamCount());
+            equal(512, prepared.getParams()[998]);
+        });
+
+        done();
+    }
+
+}
@@ -0,0 +1,52 @@
+package tk.kahsolt.sqlbuilder.sql;
+
+import tk.kahsolt.sqlbuilder.SQLBuilder;
+import tk.kahsolt.sqlbuilder.jdbc.FakeJdbc;
+
+import java.util.Arrays;
+
+import static tk.kahsolt.sqlbuilder.Check.*;
+
+public class SchemaTest {
+
+    public static void main(String[] args) {
+        SQLBuilder sqlite = new SQLBuilder();
+
+        test("PRAGMA auto_vacuum runs before the transaction, not in it", () -> {
+            Table log = sqlite.createTable("Log").column("id").autoIncrement().end().truncateStrategy(Table.Truncate.INCREMENTAL, 100);
+            Table user = sqlite.createTable("User").column("id").autoIncrement().end();
+            Schema schema = new Schema().table(log).table(user);
+            equal("PRAGMA auto_vacuum = INCREMENTAL;", schema.autoVacuum());
+            String script = schema.create().commit();
+            that(script.startsWith("BEGIN; CREATE TABLE") && !script.contains("PRAGMA"), script);
+
+            FakeJdbc jdbc = new FakeJdbc();
+            schema.create(jdbc.connection());
+            equal(Arrays.asList("execute [PRAGMA auto_vacuum = INCREMENTAL;]"), jdbc.logged("execute ["));
+            that(jdbc.log.indexOf("execute [PRAGMA auto_vacuum = INCREMENTAL;]") < jdbc.log.indexOf("setAutoCommit [false]")
+                    || !jdbc.log.contains("setAutoCommit [false]"), jdbc.log.toString());
+            equal(2, jdbc.logged("addBatch").size());
+        });
+        test("no PRAGMA without INCREMENTAL", () -> {
+            Schema schema = new Schema().table(sqlite.createTable("User").column("id").autoIncrement().end());
+            equal(null, schema.autoVacuum());
+            FakeJdbc jdbc = new FakeJdbc();
+            schema.create(jdbc.connection());
+            equal(0, jdbc.logged("execute [").size());
+        });
+
+        test("a partial index is not turned into a full one on MySQL", () -> {
+            SQLBuilder mysql = new SQLBuilder(Dialect.MYSQL);
+            Table user = mysql.createTable("User").column("id").autoIncrement().end().column("email").type(64).end()
+                    .index().unique().column("email").where("email IS NOT NULL").end();
+            equal(null, user.end());
+            fails(IllegalArgumentException.class, () -> new Schema(Dialect.MYSQL).table(user));
+            equal(null, mysql.createIndex("User", "email").unique().where("email IS NOT NULL").end().end());
+            String sql = sqlite.createIndex("User", "email").unique().where("email IS NOT NULL").end().end();
+            that(sql.endsWith("ON User(email) WHERE email IS NOT NULL;"), sql);
+        });
+
+        done();
+    }
+
+}
@@ -0,0 +1,56 @@
+package tk.kahsolt.sqlbuilder.sql;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static tk.kahsolt.sqlbuilder.Check.*;
+
+public class SlowQueryLogTest {
+
+    public static void main(String[] args) {
+
+        test("top() entries are snapshots", () -> {
+            SlowQueryLog log = new SlowQueryLog();
+            log.record("SELECT * FROM User WHERE id = 1", 1000);
+            List<SlowQueryLog.Entry> top = log.top();
+            SlowQueryLog.Entry entry = top.get(0);
+            log.record("SELECT * FROM User WHERE id = 2", 5000);
+            equal(1L, entry.getCount());
+            equal(1000L, entry.getTotalNanos());
+            equal(1000L, entry.getMaxNanos());
+            equal("SELECT * FROM User WHERE id = 1", entry.getSample());
+            SlowQueryLog.Entry later = log.top().get(0);
+            equal(2L, later.getCount());
+            equal(6000L, later.getTotalNanos());
+            equal(3000L, later.getMeanNanos());
+            equal("SELECT * FROM User WHERE id = 2", later.getSample());
+        });
+        test("a newcomer evicts the lightest and inherits its total", () -> {
+            SlowQueryLog log = new SlowQueryLog().capacity(2);
+            log.record("SELECT * FROM User WHERE id = 1", 5000);
+            log.record("SELECT * FROM Book WHERE id = 1", 1000);
+            log.record("SELECT * FROM User WHERE id = 2", 5000);
+            log.record("DELETE FROM User WHERE id = 1", 3000);
+            equal(2, log.size());
+            equal(1L, log.getEvicted());
+            equal(4L, log.getRecorded());
+            List<SlowQueryLog.Entry> top = log.top();
+            equal("SELECT * FROM User WHERE id = ?", top.get(0).getFingerprint());
+            equal(10000L, top.get(0).getTotalNanos());
+            equal("DELETE FROM User WHERE id = ?", top.get(1).getFingerprint());
+            equal(1000L, top.get(1).getError());
+            equal(1, log.top(1).size());
+        });
+        test("faster executions are not logged", () -> {
+            SlowQueryLog log = new SlowQueryLog().threshold(1, TimeUnit.MILLISECONDS);
+            log.record("SELECT * FROM User WHERE id = 1", 999_999);
+            log.record("SELECT * FROM User WHERE id = 2", 1_000_000);
+            equal(1L, log.getRecorded());
+            equal(1, log.dump().size());
+            equal(0, log.size());
+        });
+
+        done();
+    }
+
+}
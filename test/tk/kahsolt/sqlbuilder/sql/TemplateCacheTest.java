@@ -0,0 +1,111 @@
+package tk.kahsolt.sqlbuilder.sql;
+
+import tk.kahsolt.sqlbuilder.SQLBuilder;
+
+import java.util.Arrays;
+
+import static tk.kahsolt.sqlbuilder.Check.*;
+
+public class TemplateCacheTest {
+
+    public static void main(String[] args) {
+
+        test("the same shape with other values is a hit", () -> {
+            SQLBuilder sqlBuilder = new SQLBuilder().enableParameterized().enableTemplateCache();
+            TemplateCache cache = sqlBuilder.getTemplateCache();
+            for (int id = 0; id < 10; id++) {
+                Prepared prepared = sqlBuilder.select("*").from("User").where("id").eq(id).and("name").ne("k" + id).prepare();
+                equal("SELECT * FROM User WHERE id = ? AND name <> ?;", prepared.getSql());
+                equal(new Object[]{(long) id, "k" + id}, prepared.getParams());
+            }
+            equal(1, cache.size());
+            equal(9L, cache.hits());
+            equal(1L, cache.misses());
+        });
+        test("every clause is part of the shape", () -> {
+            SQLBuilder sqlBuilder = new SQLBuilder().enableParameterized().enableTemplateCache();
+            SQLBuilder plain = new SQLBuilder().enableParameterized();
+            String[] sqls = new String[2];
+            for (SQLBuilder builder : Arrays.asList(sqlBuilder, plain)) {
+                StringBuilder sb = new StringBuilder();
+                sb.append(builder.select("*").from("User").where("id").eq(1).end());
+                sb.append(builder.select("*").from("User").where("id").eq(1).or("id").eq(2).end());
+                sb.append(builder.select("*").from("User").where("id").eq(1).orderBy("id").end());
+                sb.append(builder.select("*").from("User").where("id").eq(1).orderBy("id", true).end());
+                sb.append(builder.select("*").from("User").where("id").eq(1).limit(10).end());
+                sb.append(builder.select("*").from("User").where("id").eq(1).limit(20).end());
+                sb.append(builder.select(true, "*").from("User").where("id").eq(1).end());
+                sb.append(builder.select("*").from("Book").where("id").eq(1).end());
+                sb.append(builder.select("name").from("User").groupBy("name").having("COUNT(*)").gt(1).end());
+                sb.append(builder.select("*").from("User").where("id").in(Arrays.asList(1, 2, 3)).end());
+                sb.append(builder.select("*").from("User").where("id").in(Arrays.asList(1, 2, 3, 4, 5)).end());
+                sb.append(builder.insert("User").into("name").values("a").end());
+                sb.append(builder.insert("User").into("name").values("a").values("b").end());
+                sb.append(builder.insert("User").into("name").values("a").onConflict("name").doNothing().end());
+                sb.append(builder.insert("User").end());
+                sb.append(builder.update("User").set("name", "a").where("id").eq(1).end());
+                sb.append(builder.update("User").set("age", "a").where("id").eq(1).end());
+                sb.append(builder.delete("User").where("id").eq(1).end());
+                sqls[builder==sqlBuilder ? 0 : 1] = sb.toString();
+            }
+            equal(sqls[1], sqls[0]);
+            equal(0L, sqlBuilder.getTemplateCache().hits());
+            equal(18, sqlBuilder.getTemplateCache().size());
+        });
+        test("literal queries are not cached", () -> {
+            SQLBuilder sqlBuilder = new SQLBuilder().enableTemplateCache();
+            equal("SELECT * FROM User WHERE id = 1;", sqlBuilder.select("*").from("User").where("id").eq(1).end());
+            equal("SELECT * FROM User WHERE id = 2;", sqlBuilder.select("*").from("User").where("id").eq(2).end());
+            equal(0, sqlBuilder.getTemplateCache().size());
+            equal(0L, sqlBuilder.getTemplateCache().misses());
+        });
+        test("a cached shape survives a mutation of the query it came from", () -> {
+            SQLBuilder sqlBuilder = new SQLBuilder().enableParameterized().enableTemplateCache();
+            Query query = sqlBuilder.select("*").from("User").where("id").eq(1);
+            equal("SELECT * FROM User WHERE id = ?;", query.end());
+            equal("SELECT * FROM User WHERE id = ? AND age > ?;", query.and("age").gt(13).end());
+            equal("SELECT * FROM User WHERE id = ?;", sqlBuilder.select("*").from("User").where("id").eq(2).end());
+            equal(1L, sqlBuilder.getTemplateCache().hits());
+        });
+        test("bounded, the recently hit shapes stay", () -> {
+            TemplateCache cache = new TemplateCache(4);
+            for (int i = 0; i < 4; i++) cache.put("shape" + i, "sql" + i);
+            equal("sql0", cache.get("shape0"));
+            for (int i = 4; i < 100; i++) {
+                cache.put("shape" + i, "sql" + i);
+                equal("sql0", cache.get("shape0"));
+            }
+            equal(4, cache.size());
+            equal(96L, cache.evictions());
+            fails(IllegalArgumentException.class, () -> new TemplateCache(0));
+        });
+        test("metrics report the cache", () -> {
+            SQLBuilder sqlBuilder = new SQLBuilder().enableParameterized().enableMetrics().enableTemplateCache();
+            for (int id = 0; id < 4; id++) sqlBuilder.delete("User").where("id").eq(id).end();
+            equal(1L, sqlBuilder.getMetrics().getTemplateCacheSize());
+            equal(0.75, sqlBuilder.getMetrics().getTemplateCacheHitRate());
+            equal(0.0, sqlBuilder.disableTemplateCache().getMetrics().getTemplateCacheHitRate());
+        });
+        test("shared across threads", () -> {
+            SQLBuilder sqlBuilder = new SQLBuilder().enableParameterized().enableTemplateCache(8);
+            Thread[] threads = new Thread[4];
+            String[] failure = new String[1];
+            for (int t = 0; t < threads.length; t++) {
+                threads[t] = new Thread(() -> {
+                    for (int i = 0; i < 10000; i++) {
+                        String column = "c" + (i % 16);
+                        String sql = sqlBuilder.select("*").from("User").where(column).eq(i).end();
+                        if(!sql.equals("SELECT * FROM User WHERE " + column + " = ?;")) failure[0] = sql;
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) thread.join();
+            equal(null, failure[0]);
+            that(sqlBuilder.getTemplateCache().size() <= 8, sqlBuilder.getTemplateCache().toString());
+        });
+
+        done();
+    }
+
+}
@@ -0,0 +1,37 @@
+package tk.kahsolt.sqlbuilder.sql;
+
+import tk.kahsolt.sqlbuilder.SQLBuilder;
+
+import static tk.kahsolt.sqlbuilder.Check.*;
+
+public class TransactionTest {
+
+    public static void main(String[] args) {
+        SQLBuilder sqlite = new SQLBuilder();
+
+        test("blocks are wrapped once", () -> {
+            equal("BEGIN; DELETE FROM User WHERE id = 1; CREATE TABLE t (x INT); CREATE TRIGGER tr AFTER UPDATE ON t BEGIN SELECT 1; END; COMMIT;",
+                    new Transaction().block("DELETE FROM User WHERE id = 1;")
+                            .block("CREATE TABLE t (x INT); CREATE TRIGGER tr AFTER UPDATE ON t BEGIN SELECT 1; END;").commit());
+        });
+        test("a block with its own transaction is rejected", () -> {
+            for (Table.Truncate truncate : Table.Truncate.values()) {
+                String sql = sqlite.truncateTable(sqlite.createTable("User").column("id").autoIncrement().end())
+                        .truncateStrategy(truncate).end();
+                IllegalArgumentException e = fails(IllegalArgumentException.class, () -> new Transaction().block(sql));
+                that(e.getMessage().startsWith("cannot run in a transaction: BEGIN"), e.getMessage());
+            }
+            fails(IllegalArgumentException.class, () -> new Transaction().block("VACUUM;"));
+            fails(IllegalArgumentException.class, () -> new Transaction().block("PRAGMA auto_vacuum = INCREMENTAL; CREATE TABLE t (x INT);"));
+            fails(IllegalArgumentException.class, () -> new Transaction().block("START TRANSACTION"));
+        });
+        test("savepoints, read-only PRAGMAs and look-alike names are fine", () -> {
+            new Transaction().block("SAVEPOINT a; ROLLBACK TO a; RELEASE a;").block("PRAGMA foreign_key_check;")
+                    .block("UPDATE ending SET x = 'BEGIN;'");
+            equal(null, Script.transactionControl("INSERT INTO t(x) VALUES('COMMIT')"));
+        });
+
+        done();
+    }
+
+}
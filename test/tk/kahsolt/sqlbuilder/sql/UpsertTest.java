@@ -0,0 +1,48 @@
+package tk.kahsolt.sqlbuilder.sql;
+
+import tk.kahsolt.sqlbuilder.SQLBuilder;
+
+import static tk.kahsolt.sqlbuilder.Check.*;
+
+public class UpsertTest {
+
+    public static void main(String[] args) {
+        SQLBuilder sqlite = new SQLBuilder();
+        SQLBuilder mysql = new SQLBuilder(Dialect.MYSQL);
+
+        test("doUpdate() without columns updates every inserted column but the keys", () -> {
+            equal("INSERT INTO User(id, name, age) VALUES(1, 'k', 13) ON CONFLICT(id) DO UPDATE SET name = excluded.name, age = excluded.age;",
+                    sqlite.insert("User").into("id", "name", "age").values(1, "k", 13).onConflict("id").doUpdate().end());
+            equal("INSERT INTO User(id, name, age) VALUES(1, 'k', 13) ON DUPLICATE KEY UPDATE name = VALUES(name), age = VALUES(age);",
+                    mysql.insert("User").into("id", "name", "age").values(1, "k", 13).onConflict("id").doUpdate().end());
+        });
+        test("doUpdate(columns) updates only those", () -> {
+            equal("INSERT INTO User(id, name, age) VALUES(1, 'k', 13) ON CONFLICT(id) DO UPDATE SET name = excluded.name;",
+                    sqlite.insert("User").into("id", "name", "age").values(1, "k", 13).onConflict("id").doUpdate("name").end());
+            equal("INSERT INTO User(id, name, age) VALUES(1, 'k', 13) ON DUPLICATE KEY UPDATE name = VALUES(name);",
+                    mysql.insert("User").into("id", "name", "age").values(1, "k", 13).onConflict("id").doUpdate("name").end());
+        });
+        test("doNothing() keeps the existing row", () -> {
+            equal("INSERT INTO User(id, name) VALUES(1, 'k') ON CONFLICT DO NOTHING;",
+                    sqlite.insert("User").into("id", "name").values(1, "k").onConflict().doNothing().end());
+            equal("INSERT INTO User(id, name) VALUES(1, 'k') ON CONFLICT(id) DO NOTHING;",
+                    sqlite.insert("User").into("id", "name").values(1, "k").onConflict("id").doNothing().end());
+            equal("INSERT INTO User(id, name) VALUES(1, 'k') ON DUPLICATE KEY UPDATE id = id;",     // not INSERT IGNORE, which hides other errors
+                    mysql.insert("User").into("id", "name").values(1, "k").onConflict().doNothing().end());
+        });
+        test("misuse gives null", () -> {
+            equal(null, sqlite.insert("User").into("id", "name").values(1, "k").doNothing());
+            equal(null, sqlite.update("User").onConflict("id"));
+            equal(null, sqlite.insert("User").into("id").values(1).onConflict("id").doUpdate());   // nothing left to update
+        });
+        test("parameterized upsert binds the row only", () -> {
+            Prepared prepared = new SQLBuilder().enableParameterized().insert("User").into("id", "name").values(1, "k")
+                    .onConflict("id").doUpdate().prepare();
+            equal("INSERT INTO User(id, name) VALUES(?, ?) ON CONFLICT(id) DO UPDATE SET name = excluded.name;", prepared.getSql());
+            equal(2, prepared.getParamCount());
+        });
+
+        done();
+    }
+
+}
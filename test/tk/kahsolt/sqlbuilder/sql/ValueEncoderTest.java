@@ -0,0 +1,54 @@
+package tk.kahsolt.sqlbuilder.sql;
+
+import tk.kahsolt.sqlbuilder.SQLBuilder;
+
+import static tk.kahsolt.sqlbuilder.Check.*;
+
+public class ValueEncoderTest {
+
+    public static void main(String[] args) {
+        SQLBuilder sqlite = new SQLBuilder();
+        SQLBuilder mysql = new SQLBuilder(Dialect.MYSQL);
+
+        test("quotes are doubled", () -> {
+            equal("'it''s'", ValueEncoder.encode("it's"));
+            equal("'x\\'", ValueEncoder.encode("x\\"));     // SQLite has no backslash escapes
+        });
+        test("MySQL doubles backslashes too", () -> {
+            equal("'x\\\\'", ValueEncoder.encode("x\\", Dialect.MYSQL));
+            equal("SELECT id FROM User WHERE name = 'x\\\\' AND note = 'it''s';",
+                    mysql.select("id").from("User").where("name").eq("x\\").and("note").eq("it's").end());
+            equal("INSERT INTO User(name) VALUES('a\\\\'' OR 1=1 -- ');",
+                    mysql.insert("User").into("name").values("a\\' OR 1=1 -- ").end());
+        });
+        test("strings are kept as given, like their bound value", () -> {
+            equal("' a; '", ValueEncoder.encode(" a; "));
+            equal("INSERT INTO User(name, note) VALUES(' a; ', 'b;');", sqlite.insert("User").into("name", "note").values(" a; ", "b;").end());
+            equal("SELECT id FROM User WHERE name = '\tx ';", sqlite.select("id").from("User").where("name").eq("\tx ").end());
+        });
+        test("like() and between() quote their values", () -> {
+            equal("SELECT id FROM User WHERE name LIKE '%it''s%';", sqlite.select("id").from("User").where("name").like("it's").end());
+            equal("SELECT id FROM User WHERE name LIKE 'a\\\\_%';", mysql.select("id").from("User").where("name").like("a\\_%", true).end());
+            equal("SELECT id FROM User WHERE name BETWEEN 'a''' AND 'b';", sqlite.select("id").from("User").where("name").between("a'", "b").end());
+        });
+        test("strings are values, never sub-queries", () -> {
+            equal("SELECT id FROM User WHERE name = '(1) OR 1=1 --)';", sqlite.select("id").from("User").where("name").eq("(1) OR 1=1 --)").end());
+            equal("SELECT id FROM User WHERE name = 'SELECT 1';", sqlite.select("id").from("User").where("name").eq("SELECT 1").end());
+            equal("SELECT id FROM User WHERE age > (SELECT MIN(age) FROM User);",
+                    sqlite.select("id").from("User").where("age").gt(sqlite.select("MIN(age)").from("User")).end());
+            sqlite.enableParameterized();
+            try {
+                equal(new Object[]{"(1) OR 1=1 --)"}, sqlite.select("id").from("User").where("name").eq("(1) OR 1=1 --)").prepare().getParams());
+            } finally {
+                sqlite.disableParameterized();
+            }
+        });
+        test("in(String) is an explicit sub-query", () -> {
+            equal("SELECT id FROM User WHERE id IN (SELECT uid FROM Ban);", sqlite.select("id").from("User").where("id").in("SELECT uid FROM Ban;").end());
+            equal("SELECT id FROM User WHERE id NOT IN (1, 2);", sqlite.select("id").from("User").where("id").notin("(1, 2)").end());
+        });
+
+        done();
+    }
+
+}